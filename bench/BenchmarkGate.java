@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares JMH results with a baseline and fails on regressions. Both files are written by JMH with
+ * {@code -rf csv -rff file}, run with {@code -prof gc} to gate on allocation as well. Every result that is measured
+ * per operation, the time and {@code gc.alloc.rate.norm}, and that is more than the given percentage (default 25)
+ * worse than the baseline is reported, and the exit code is 1. Results that are not in the baseline are skipped.
+ * <p>
+ * Usage: {@code java -cp jmh/target/benchmarks.jar BenchmarkGate baseline.csv results.csv [percent]}.
+ */
+public class BenchmarkGate {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java BenchmarkGate baseline.csv results.csv [percent]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 25;
+
+        Map<String, Double> expected = new HashMap<>();
+        for (Row row : read(Path.of(args[0]))) expected.put(row.key(), row.score());
+
+        double factor = 1 + tolerance / 100;
+        boolean passed = true;
+        int compared = 0;
+        for (Row row : read(Path.of(args[1]))) {
+            Double base = expected.get(row.key());
+            if (base == null || !row.unit().endsWith("/op")) continue;
+            compared++;
+
+            // A byte of slack, so a benchmark that allocates nothing does not fail on rounding
+            double slack = row.unit().equals("B/op") ? 1 : 0;
+            if (row.score() > base * factor + slack) {
+                System.out.printf("REGRESSION %s: %.1f %s, baseline %.1f %s%n",
+                        row.key(), row.score(), row.unit(), base, row.unit());
+                passed = false;
+            }
+        }
+        System.out.println(compared + " results compared with the baseline");
+        if (!passed) System.exit(1);
+    }
+
+    /**
+     * One line of a JMH CSV file.
+     *
+     * @param key The benchmark, with the secondary result and the parameters.
+     * @param score The score.
+     * @param unit The unit of the score.
+     */
+    private record Row(String key, double score, String unit) { }
+
+    /**
+     * Reads a JMH CSV file.
+     *
+     * @param path The file.
+     * @return The results in the file.
+     * @throws IOException when the file can not be read.
+     */
+    private static List<Row> read(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        List<String> header = fields(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int score = header.indexOf("Score");
+        int unit = header.indexOf("Unit");
+
+        List<Row> rows = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = fields(line);
+            StringBuilder key = new StringBuilder(fields.get(benchmark));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && !fields.get(i).isEmpty())
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+            }
+            rows.add(new Row(key.toString(), Double.parseDouble(fields.get(score)), fields.get(unit)));
+        }
+        return rows;
+    }
+
+    /**
+     * Splits a CSV line into its fields, without the quotes around them.
+     *
+     * @param line The line.
+     * @return The fields.
+     */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
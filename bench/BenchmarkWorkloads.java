@@ -0,0 +1,143 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import jmh.Workload;
+
+/**
+ * The work the JMH benchmarks in {@code bench/jmh} measure. JMH only accepts benchmarks in a named package, and a
+ * named package can not use the classes of the game, which are in the default package. So the benchmarks look up
+ * their workloads here by name once, in their setup, and only call {@link Workload#run()} while measuring.
+ * Boards are filled from fixed seeds, so every run measures the same positions.
+ */
+public final class BenchmarkWorkloads {
+    private BenchmarkWorkloads() {
+    }
+
+    /**
+     * Creates a workload.
+     *
+     * @param name The name of the workload.
+     * @param params The parameters of the workload, see the cases below.
+     * @return The workload.
+     * @throws IllegalArgumentException when there is no workload with the name.
+     */
+    public static Workload create(String name, int[] params) {
+        return switch (name) {
+            // Board methods on a board of size params[0] filled to params[1] percent
+            case "isWinner" -> {
+                Board board = filledBoard(params[0], params[1]);
+                yield () -> board.isWinner(Icon.X) || board.isWinner(Icon.O) ? 1 : 0;
+            }
+            case "getPossibleMoves" -> {
+                Board board = filledBoard(params[0], params[1]);
+                yield () -> board.getPossibleMoves().size();
+            }
+            case "getPossibleMoves[]" -> {
+                Board board = filledBoard(params[0], params[1]);
+                int[] moves = new int[board.getRules().cells];
+                yield () -> board.getPossibleMoves(moves);
+            }
+            case "copy" -> {
+                Board board = filledBoard(params[0], params[1]);
+                yield () -> board.copy().hash();
+            }
+            case "snapshot.with" -> {
+                Board board = filledBoard(params[0], params[1]);
+                BoardSnapshot snapshot = board.snapshot();
+                int[] moves = new int[board.getRules().cells];
+                board.getPossibleMoves(moves);
+                int empty = moves[0];
+                yield () -> snapshot.with(empty, Icon.X).hash();
+            }
+            case "snapshot.toBoard" -> {
+                BoardSnapshot snapshot = filledBoard(params[0], params[1]).snapshot();
+                yield () -> snapshot.toBoard().hash();
+            }
+            // AIPlayer.getMove on the empty board of size params[0] with ply params[1], without a table
+            case "getMove" -> search(params[0], params[1], AIPlayer.SearchMode.ALPHA_BETA, false);
+            // The same with a table that is cleared before every search, see AllocationBenchmark
+            case "search.minimax" -> search(params[0], params[1], AIPlayer.SearchMode.MINIMAX, true);
+            case "search.alphaBeta" -> search(params[0], params[1], AIPlayer.SearchMode.ALPHA_BETA, true);
+            // A game on a params[0] board with params[1] in a row, printed to a discarding console if params[2] is 1
+            case "game" -> {
+                GameRunner runner = new GameRunner(Rules.of(params[0], params[0], params[1]));
+                if (params[2] == 1) runner.setObserver(new ConsoleObserver(new PrintStream(OutputStream.nullOutputStream())));
+                yield () -> runner.play(new FirstCellPlayer(), new FirstCellPlayer()).moves().size();
+            }
+            default -> throw new IllegalArgumentException("Unknown workload: " + name);
+        };
+    }
+
+    /**
+     * Creates a workload that computes a move on the empty board and returns the number of visited nodes.
+     *
+     * @param size The size of the board.
+     * @param ply The depth of the search.
+     * @param mode The search mode.
+     * @param cold true to search with a 4 MB table that every reset clears, false to search without a table.
+     * @return The workload.
+     */
+    private static Workload search(int size, int ply, AIPlayer.SearchMode mode, boolean cold) {
+        AIPlayer player = new AIPlayer(ply, AIPlayer.Tiebreaker.LEFT, mode);
+        player.setIcon(Icon.X);
+        // Cleared rather than replaced, so the table does not count as allocated by the search
+        TranspositionTable table = cold ? new TranspositionTable(4) : null;
+        player.setTranspositionTable(table);
+        Board board = new Board(size);
+        return new Workload() {
+            @Override
+            public long run() {
+                player.getMove(board);
+                return player.getNodeCount();
+            }
+
+            @Override
+            public void reset() {
+                if (table != null) table.clear();
+            }
+        };
+    }
+
+    /**
+     * Fills a board with alternating random moves from a fixed seed, without a winner.
+     *
+     * @param size The size of the board.
+     * @param percent The percentage of cells to fill.
+     * @return The filled board.
+     */
+    private static Board filledBoard(int size, int percent) {
+        Random random = new Random(size * 100L + percent);
+        int stones = size * size * percent / 100;
+        while (true) {
+            Board board = new Board(size);
+            Icon icon = Icon.X;
+            for (int i = 0; i < stones; i++) {
+                List<Position> moves = board.getPossibleMoves();
+                board.set(moves.get(random.nextInt(moves.size())), icon);
+                icon = icon.opponent();
+            }
+            if (!board.isWinner(Icon.X) && !board.isWinner(Icon.O)) return board;
+        }
+    }
+
+    /**
+     * Plays the first empty cell, the cheapest legal move there is, so a game measures the game loop.
+     */
+    private static final class FirstCellPlayer extends Player {
+        private int[] moves = new int[0];
+
+        @Override
+        public Position getMove(Board board) {
+            return getMove(board.snapshot());
+        }
+
+        @Override
+        public Position getMove(BoardSnapshot snapshot) {
+            if (moves.length < snapshot.getRules().cells) moves = new int[snapshot.getRules().cells];
+            snapshot.getPossibleMoves(moves);
+            return snapshot.position(moves[0]);
+        }
+    }
+}
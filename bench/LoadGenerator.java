@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens many sessions on a {@link GameServer} at once and measures sessions and moves per second.
+ * In every session a simulated remote client plays X with random moves after a think time, against an {@link AIPlayer}.
+ * <p>
+ * Usage: {@code java LoadGenerator [sessions] [size] [ply] [think ms] [compute threads]}.
+ */
+public class LoadGenerator {
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int ply = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int think = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int computeThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        Rules rules = Rules.square(size);
+        // One table for all computer players, a table per session would take gigabytes
+        TranspositionTable table = new TranspositionTable(64);
+        ScheduledExecutorService clients = Executors.newSingleThreadScheduledExecutor();
+        try (GameServer server = new GameServer(2, computeThreads)) {
+            long start = System.nanoTime();
+            List<CompletableFuture<GameResult>> results = new ArrayList<>(sessions);
+            for (int i = 0; i < sessions; i++) {
+                AIPlayer ai = new AIPlayer(ply);
+                ai.setTranspositionTable(table);
+                GameSession session = server.open(rules, client(clients, think), ai);
+                results.add(session.getResult());
+            }
+            int peak = server.getActiveSessions();
+
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long moves = 0;
+            for (CompletableFuture<GameResult> result : results) moves += result.join().moves().size();
+            System.out.printf("%d sessions (%d at once), %d moves in %.2f s: %.0f sessions/s, %.0f moves/s%n",
+                    sessions, peak, moves, seconds, sessions / seconds, moves / seconds);
+        }
+        finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a simulated remote player that answers every turn with a random move after a think time.
+     *
+     * @param clients The scheduler the answers are sent from.
+     * @param think The think time in milliseconds.
+     * @return The remote player.
+     */
+    private static RemotePlayer client(ScheduledExecutorService clients, int think) {
+        RemotePlayer[] player = new RemotePlayer[1];
+        player[0] = new RemotePlayer(board -> clients.schedule(() -> {
+            List<Position> moves = board.getPossibleMoves();
+            player[0].submitMove(moves.get(ThreadLocalRandom.current().nextInt(moves.size())));
+        }, think, TimeUnit.MILLISECONDS));
+        return player[0];
+    }
+}
@@ -0,0 +1,68 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many bytes {@code AIPlayer.getMove} allocates per visited node, per search mode. Every call searches
+ * the empty board with a cleared transposition table, otherwise the table answers the search.
+ * <p>
+ * Usage: {@code java -jar jmh/target/benchmarks.jar Allocation -prof gc}. The bytes per node are
+ * {@code gc.alloc.rate.norm} divided by the nodes per call, the {@code nodes} counter over the {@code calls} counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    @Param({"minimax", "alphaBeta"})
+    String mode;
+
+    @Param({"3:8"})
+    String search;
+
+    private Workload workload;
+
+    /**
+     * The number of nodes visited and the number of calls, summed over each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+        public long calls;
+    }
+
+    @Setup
+    public void setup() {
+        workload = Workloads.create("search." + mode, Workloads.numbers(search));
+    }
+
+    @Setup(Level.Invocation)
+    public void coldTable() {
+        workload.reset();
+    }
+
+    @Benchmark
+    public long getMove(Nodes counters) {
+        long nodes = workload.run();
+        counters.nodes += nodes;
+        counters.calls++;
+        return nodes;
+    }
+}
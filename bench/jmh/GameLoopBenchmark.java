@@ -0,0 +1,51 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of the game loop per game, without and with printing the game. Both players play the first empty
+ * cell, so almost all of the time is spent in the loop and its observer. The console observer prints to a stream
+ * that throws the output away, so only the formatting and the synchronized writes are measured, not the terminal.
+ * Divide by the number of moves of the game (7 on 3x3, 29 on 7x7 and 61 on 15x15) for the cost per move.
+ * <p>
+ * Usage: {@code java -jar jmh/target/benchmarks.jar GameLoop -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class GameLoopBenchmark {
+    /** The size of the board and the number in a row that wins. */
+    @Param({"3:3", "7:5", "15:5"})
+    String rules;
+
+    @Param({"none", "console"})
+    String observer;
+
+    private Workload game;
+
+    @Setup
+    public void setup() {
+        int[] numbers = Workloads.numbers(rules);
+        game = Workloads.create("game", numbers[0], numbers[1], observer.equals("console") ? 1 : 0);
+    }
+
+    @Benchmark
+    public long game() {
+        return game.run();
+    }
+}
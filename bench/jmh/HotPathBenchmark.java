@@ -0,0 +1,111 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the hot paths of {@code Board} and {@code AIPlayer} on board sizes 3 to 6.
+ * The board methods run on boards filled to 0, 25, 50 and 75 percent, {@code AIPlayer.getMove} runs on the empty
+ * board at several depths without a transposition table, so every call does the same work.
+ * <p>
+ * Usage: {@code java -jar jmh/target/benchmarks.jar HotPath -prof gc}, the GC profiler adds the bytes allocated per
+ * operation as {@code gc.alloc.rate.norm}. Add {@code -rf csv -rff file} to save the results as a baseline for
+ * {@code BenchmarkGate}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class HotPathBenchmark {
+    /**
+     * A board filled with random moves from a fixed seed.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        @Param({"3", "4", "5", "6"})
+        int size;
+
+        @Param({"0", "25", "50", "75"})
+        int fill;
+
+        Workload isWinner;
+        Workload possibleMoves;
+        Workload possibleMovesBuffer;
+        Workload copy;
+        Workload snapshotWith;
+        Workload snapshotToBoard;
+
+        @Setup
+        public void setup() {
+            isWinner = Workloads.create("isWinner", size, fill);
+            possibleMoves = Workloads.create("getPossibleMoves", size, fill);
+            possibleMovesBuffer = Workloads.create("getPossibleMoves[]", size, fill);
+            copy = Workloads.create("copy", size, fill);
+            snapshotWith = Workloads.create("snapshot.with", size, fill);
+            snapshotToBoard = Workloads.create("snapshot.toBoard", size, fill);
+        }
+    }
+
+    /**
+     * A search of the empty board, as size:ply. Deeper searches on larger boards take seconds per move.
+     */
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"3:2", "3:4", "3:8", "4:2", "4:4", "4:6", "5:2", "5:4", "6:2", "6:3"})
+        String search;
+
+        Workload getMove;
+
+        @Setup
+        public void setup() {
+            getMove = Workloads.create("getMove", Workloads.numbers(search));
+        }
+    }
+
+    @Benchmark
+    public long isWinner(Filled state) {
+        return state.isWinner.run();
+    }
+
+    @Benchmark
+    public long getPossibleMoves(Filled state) {
+        return state.possibleMoves.run();
+    }
+
+    @Benchmark
+    public long getPossibleMovesBuffer(Filled state) {
+        return state.possibleMovesBuffer.run();
+    }
+
+    @Benchmark
+    public long copy(Filled state) {
+        return state.copy.run();
+    }
+
+    @Benchmark
+    public long snapshotWith(Filled state) {
+        return state.snapshotWith.run();
+    }
+
+    @Benchmark
+    public long snapshotToBoard(Filled state) {
+        return state.snapshotToBoard.run();
+    }
+
+    @Benchmark
+    public long getMove(Search state) {
+        return state.getMove.run();
+    }
+}
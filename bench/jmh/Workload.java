@@ -0,0 +1,19 @@
+package jmh;
+
+/**
+ * A piece of work a benchmark measures, created by {@code BenchmarkWorkloads} in the default package.
+ */
+public interface Workload {
+    /**
+     * Does the work once.
+     *
+     * @return A value derived from the work, the benchmark returns it so the JIT can not remove the work.
+     */
+    long run();
+
+    /**
+     * Restores the state the work starts from, called before every measured call where the benchmark needs it.
+     */
+    default void reset() {
+    }
+}
@@ -0,0 +1,42 @@
+package jmh;
+
+/**
+ * Looks up the workloads of the benchmarks. The game is in the default package, which the benchmarks can not
+ * name, so the lookup goes through reflection once per setup and the measured calls go through {@link Workload}.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload with {@code BenchmarkWorkloads.create}.
+     *
+     * @param name The name of the workload.
+     * @param params The parameters of the workload.
+     * @return The workload.
+     * @throws IllegalStateException when the workload can not be created.
+     */
+    static Workload create(String name, int... params) {
+        try {
+            return (Workload) Class.forName("BenchmarkWorkloads")
+                    .getMethod("create", String.class, int[].class)
+                    .invoke(null, name, params);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can not create workload " + name, e);
+        }
+    }
+
+    /**
+     * Parses a parameter of the form {@code "a:b"}.
+     *
+     * @param param The parameter.
+     * @return The numbers separated by colons.
+     */
+    static int[] numbers(String param) {
+        String[] parts = param.split(":");
+        int[] numbers = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) numbers[i] = Integer.parseInt(parts[i]);
+        return numbers;
+    }
+}
@@ -1,14 +1,60 @@
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Represents an AI player that uses the minimax algorithm to make game moves.
  */
 public class AIPlayer extends Player {
+    private static final int DEFAULT_TABLE_MEGABYTES = 4;
+    private static final Logger LOGGER = Logger.getLogger(AIPlayer.class.getName());
+
     private final int ply;
+    private final Duration budget;
     private final Tiebreaker tiebreaker;
+    private final SearchMode searchMode;
     private final Random random = new Random();
+    private AlphaBetaSearch alphaBeta;
+    private ParallelSearch parallel;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private TranspositionTable table;
+    private boolean useTable = true;
+    private Evaluator evaluator = Evaluator.NONE;
+    private boolean candidateMoves;
+    private Tablebase tablebase;
+    private int endgameThreshold;
+    private EndgameSolver endgame;
+    private EvaluationCache cache;
+    private SearchListener listener = SearchListener.NONE;
+    private boolean pondering;
+    // The background search of the replies to the last move, or null
+    private Ponder ponder;
+    private AlphaBetaSearch ponderSearch;
+    private long ponderHits;
+    private long ponderMisses;
+    private long nodes;
+    // Statistics of the last search, only reported to the listener
+    private int depth;
+    private long terminals;
+    private long cutoffs;
+    private long tableCutoffs;
+    private long[] iterationNanos = new long[0];
+    private int iterations;
+    private int[][] moveBuffers;
+    private int[][] scoreBuffers;
+    // The cells of all moves with the best score at the root of the last search, for the evaluation cache
+    private int[] bestMoves;
+    private int bestMove;
+    private int bestScore;
 
     /**
      * Creates a new instance of the {@link AIPlayer} class.
@@ -26,8 +72,44 @@ public class AIPlayer extends Player {
      * @param tiebreaker The tiebreaker the minimax algorithm will use when multiple moves have the same score.
      */
     public AIPlayer(int ply, Tiebreaker tiebreaker) {
+        this(ply, tiebreaker, SearchMode.ALPHA_BETA);
+    }
+
+    /**
+     * Creates a new instance of the {@link AIPlayer} class.
+     *
+     * @param ply The depth of the search tree (number of ply) the minimax algorithm explores.
+     * @param tiebreaker The tiebreaker the minimax algorithm will use when multiple moves have the same score.
+     * @param searchMode The algorithm used to search the game tree.
+     */
+    public AIPlayer(int ply, Tiebreaker tiebreaker, SearchMode searchMode) {
         this.ply = ply;
+        this.budget = null;
         this.tiebreaker = tiebreaker;
+        this.searchMode = searchMode;
+    }
+
+    /**
+     * Creates a new instance of the {@link AIPlayer} class that searches deeper and deeper until its time is up.
+     *
+     * @param budget The time the player may use for each move.
+     */
+    public AIPlayer(Duration budget) {
+        this(budget, Tiebreaker.RANDOM);
+    }
+
+    /**
+     * Creates a new instance of the {@link AIPlayer} class that searches deeper and deeper until its time is up.
+     *
+     * @param budget The time the player may use for each move.
+     * @param tiebreaker The tiebreaker the search will use when multiple moves have the same score.
+     */
+    public AIPlayer(Duration budget, Tiebreaker tiebreaker) {
+        if (budget.isNegative() || budget.isZero()) throw new IllegalArgumentException("Budget must be positive.");
+        this.ply = -1;
+        this.budget = budget;
+        this.tiebreaker = tiebreaker;
+        this.searchMode = SearchMode.ALPHA_BETA;
     }
 
     /**
@@ -39,6 +121,18 @@ public class AIPlayer extends Player {
         RANDOM
     }
 
+    /**
+     * The algorithms {@link AIPlayer} can use to search the game tree. All give the same scores.
+     */
+    public enum SearchMode {
+        /** Plain negamax over every move. */
+        MINIMAX,
+        /** Negamax with alpha-beta pruning and move ordering. */
+        ALPHA_BETA,
+        /** Alpha-beta with the moves at the root searched in parallel on a {@link ForkJoinPool}. */
+        PARALLEL
+    }
+
     /**
      * Computes and returns the best move for the current player using the minimax algorithm.
      *
@@ -47,48 +141,719 @@ public class AIPlayer extends Player {
      */
     @Override
     public Position getMove(Board board) {
-        return minimax(ply, board, getIcon()).move();
+        Position move;
+        if (listener == SearchListener.NONE) move = search(board);
+        else {
+            long start = System.nanoTime();
+            int moves = board.getEmptyCells();
+            move = search(board);
+            long elapsed = System.nanoTime() - start;
+            if (budget == null) addIteration(0, elapsed);
+
+            listener.searchCompleted(new SearchStats(getIcon(), move, moves, depth, nodes, terminals, cutoffs,
+                    tableCutoffs, elapsed, Arrays.copyOf(iterationNanos, iterations)));
+        }
+
+        if (pondering) startPondering(board, move);
+        return move;
+    }
+
+    /**
+     * Computes the best move with the search the player is configured for.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The chosen move.
+     */
+    private Position search(Board board) {
+        nodes = terminals = cutoffs = tableCutoffs = 0;
+        depth = ply;
+        iterations = 0;
+        Position pondered = ponderHit(board);
+        if (pondered != null) return pondered;
+        if (table != null) table.newSearch();
+        if (tablebase != null) {
+            Tablebase.Entry entry = tablebase.probe(board, getIcon());
+            if (entry != null) {
+                depth = 0;
+                return entry.move();
+            }
+        }
+        if (board.getEmptyCells() <= endgameThreshold) return endgameMove(board);
+        if (budget != null) return timedMove(board);
+
+        // Deeper searches do not fit in an entry
+        boolean cached = cache != null && ply <= EvaluationCache.MAX_DEPTH;
+        int symmetry = cached ? board.canonicalSymmetry() : 0;
+        long key = cached ? cacheKey(board, symmetry) : 0;
+        if (cached) {
+            Position move = cachedMove(board, symmetry, cache.probeMoves(key));
+            if (move != null) return move;
+        }
+
+        Position move;
+        if (searchMode == SearchMode.MINIMAX) move = minimaxMove(board);
+        else if (searchMode == SearchMode.PARALLEL) move = parallelMove(board);
+        else move = alphaBetaMove(board);
+
+        if (cached) {
+            // All equal moves are stored, so a random tiebreaker can still choose between them on a hit
+            int[] moves = new int[bestMoves.length];
+            for (int i = 0; i < moves.length; i++) moves[i] = board.getZobrist().map(symmetry, bestMoves[i]);
+            cache.store(key, ply, bestScore, moves);
+        }
+        return move;
+    }
+
+    /**
+     * Picks one of the best moves the evaluation cache holds for a position, with the tiebreaker.
+     * The moves are checked against the board, an entry of another position with the same key is not played.
+     *
+     * @param board The current game board.
+     * @param symmetry The canonical symmetry of the board.
+     * @param moves The cached cells of the best moves in the canonical orientation, or null.
+     * @return The chosen move, or null when the cache has no usable entry.
+     */
+    private Position cachedMove(Board board, int symmetry, int[] moves) {
+        if (moves == null) return null;
+
+        int[] cells = new int[moves.length];
+        for (int i = 0; i < cells.length; i++) {
+            int cell = board.getZobrist().unmap(symmetry, moves[i]);
+            if (cell < 0 || cell >= board.getRules().cells || board.get(cell) != Icon.NONE) return null;
+            cells[i] = cell;
+        }
+
+        // The search tries the moves in the order of their cells, so the tiebreaker picks in that order too
+        Arrays.sort(cells);
+        int pick = switch (tiebreaker) {
+            case LEFT -> 0;
+            case RIGHT -> cells.length - 1;
+            default -> random.nextInt(cells.length);
+        };
+        return board.position(cells[pick]);
+    }
+
+    /**
+     * Remembers the cells of all moves with the best score at the root of the search, for the evaluation cache.
+     *
+     * @param cells The cells of the moves.
+     * @param scores The scores of the moves.
+     * @param count The number of moves.
+     */
+    private void rememberBestMoves(int[] cells, int[] scores, int count) {
+        int biggest = max(scores, count);
+        int ties = 0;
+        for (int i = 0; i < count; i++)
+            if (scores[i] == biggest) ties++;
+
+        bestMoves = new int[ties];
+        for (int i = 0, t = 0; i < count; i++)
+            if (scores[i] == biggest) bestMoves[t++] = cells[i];
+    }
+
+    /**
+     * Remembers the best moves of a list of moves, for the evaluation cache.
+     *
+     * @param board The current game board.
+     * @param moves The moves.
+     * @param scores The scores of the moves.
+     */
+    private void rememberBestMoves(Board board, List<Position> moves, int[] scores) {
+        int[] cells = new int[moves.size()];
+        for (int i = 0; i < cells.length; i++) cells[i] = board.index(moves.get(i));
+        rememberBestMoves(cells, scores, cells.length);
+    }
+
+    /**
+     * Computes the best move with the exact endgame solver.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The quickest win, a draw, or the slowest loss.
+     */
+    private Position endgameMove(Board board) {
+        if (endgame == null) endgame = new EndgameSolver(DEFAULT_TABLE_MEGABYTES);
+        EndgameSolver.Result result = endgame.solve(board, getIcon());
+        nodes = result.nodes();
+        depth = board.getEmptyCells();
+        bestScore = result.score();
+        return result.move();
+    }
+
+    /**
+     * Computes the best move with the alpha-beta search.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The move chosen by the search.
+     */
+    private Position alphaBetaMove(Board board) {
+        AlphaBetaSearch search = alphaBetaSearch(board);
+        List<Position> possibleMoves = rootMoves(board);
+        int[] scores = search.scoreMoves(board, ply, getIcon(), possibleMoves);
+        count(search);
+        if (cache != null) rememberBestMoves(board, possibleMoves, scores);
+        int index = tiebreakerMove(scores);
+        bestScore = scores[index];
+        return possibleMoves.get(index);
+    }
+
+    /**
+     * Returns the moves to choose from at the root of the search.
+     *
+     * @param board The current game board.
+     * @return The candidate moves if the player searches only those, otherwise every possible move.
+     */
+    private List<Position> rootMoves(Board board) {
+        if (!candidateMoves) return board.getPossibleMoves();
+
+        int[] cells = new int[board.getEmptyCells()];
+        int count = board.getCandidateMoves(cells, getIcon());
+        List<Position> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) moves.add(board.position(cells[i]));
+        return moves;
+    }
+
+    /**
+     * Computes the key of a position in the evaluation cache. Besides the position and the player to move it
+     * includes everything that changes the scores of the moves: the rules, the depth, the evaluator and whether only
+     * candidate moves are searched. The tiebreaker is left out, every entry holds all equal moves to pick from.
+     *
+     * @param board The current game board.
+     * @param symmetry The canonical symmetry of the board.
+     * @return The key.
+     */
+    private long cacheKey(Board board, int symmetry) {
+        long settings = Objects.hash(board.getRules(), ply, evaluator.getClass().getName(), candidateMoves);
+        return board.hash(symmetry) ^ (getIcon() == Icon.O ? Zobrist.SIDE : 0) ^ settings * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Computes the best move with the plain minimax search.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The move chosen by the minimax algorithm.
+     */
+    private Position minimaxMove(Board board) {
+        // One buffer per number of empty cells, so each level of the search has its own
+        int cells = board.getRules().cells;
+        if (moveBuffers == null || moveBuffers[0].length != cells) {
+            moveBuffers = new int[cells + 1][cells];
+            scoreBuffers = new int[cells + 1][cells];
+        }
+
+        bestScore = minimax(ply, board, getIcon());
+        if (cache != null) {
+            // The root level keeps its moves and scores in the buffers of the current number of empty cells
+            int[] moves = moveBuffers[board.getEmptyCells()];
+            int count = candidateMoves
+                    ? board.getCandidateMoves(moves, getIcon()) : board.getPossibleMoves(moves);
+            rememberBestMoves(moves, scoreBuffers[board.getEmptyCells()], count);
+        }
+        return board.position(bestMove);
+    }
+
+    /**
+     * Computes the best move with iterative deepening until the time budget is used up.
+     * Each iteration searches the best move of the previous one first. An iteration that passes the deadline
+     * is thrown away, so the move comes from the deepest search that finished.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The move chosen by the deepest finished search.
+     */
+    private Position timedMove(Board board) {
+        long start = System.nanoTime();
+        AlphaBetaSearch search = alphaBetaSearch(board);
+        List<Position> possibleMoves = rootMoves(board);
+        Position best = null;
+        int depth = 0;
+
+        // Deeper than the number of empty cells does not change the chosen move
+        for (; depth < board.getEmptyCells(); depth++) {
+            // Depth 0 always finishes so there is a move to return
+            search.setDeadline(depth == 0 ? Long.MAX_VALUE : start + budget.toNanos());
+            Board work = board.copy();
+            long iterationStart = System.nanoTime();
+            try {
+                int[] scores = search.scoreMoves(work, depth, getIcon(), possibleMoves, best);
+                best = possibleMoves.get(tiebreakerMove(scores));
+            }
+            catch (AlphaBetaSearch.SearchTimeout e) {
+                break;
+            }
+            addIteration(depth, System.nanoTime() - iterationStart);
+        }
+
+        count(search);
+        int reached = depth - 1;
+        this.depth = reached;
+        long elapsed = System.nanoTime() - start;
+        LOGGER.fine(() -> String.format("%s reached depth %d: %d nodes in %d ms",
+                getIcon(), reached, nodes, elapsed / 1_000_000));
+        return best;
+    }
+
+    /**
+     * Returns the alpha-beta search for a board, reusing it so the history table carries over between moves.
+     *
+     * @param board The board that will be searched.
+     * @return The search with its node counter reset.
+     */
+    private AlphaBetaSearch alphaBetaSearch(Board board) {
+        if (alphaBeta == null || alphaBeta.rules != board.getRules()) {
+            alphaBeta = new AlphaBetaSearch(board.getRules(), getTranspositionTable());
+            alphaBeta.setEvaluator(evaluator);
+            alphaBeta.setCandidateMoves(candidateMoves);
+        }
+        alphaBeta.resetNodes();
+        return alphaBeta;
+    }
+
+    /**
+     * Copies the counters of a finished alpha-beta search.
+     *
+     * @param search The finished search.
+     */
+    private void count(AlphaBetaSearch search) {
+        nodes = search.getNodes();
+        terminals = search.getTerminals();
+        cutoffs = search.getCutoffs();
+        tableCutoffs = search.getTableCutoffs();
+    }
+
+    /**
+     * Records the time of a finished iteration of the search.
+     *
+     * @param index The index of the iteration.
+     * @param nanos The time the iteration took in nanoseconds.
+     */
+    private void addIteration(int index, long nanos) {
+        if (index >= iterationNanos.length) iterationNanos = Arrays.copyOf(iterationNanos, index + 8);
+        iterationNanos[index] = nanos;
+        iterations = index + 1;
+    }
+
+    /**
+     * Computes the best move with the root moves searched in parallel.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The move chosen by the search.
+     */
+    private Position parallelMove(Board board) {
+        if (parallel == null) {
+            parallel = new ParallelSearch(pool, getTranspositionTable(), evaluator);
+            parallel.setCandidateMoves(candidateMoves);
+        }
+        parallel.resetNodes();
+
+        List<Position> possibleMoves = rootMoves(board);
+        int[] scores = parallel.scoreMoves(board, ply, getIcon(), possibleMoves);
+        nodes = parallel.getNodes();
+        terminals = parallel.getTerminals();
+        cutoffs = parallel.getCutoffs();
+        tableCutoffs = parallel.getTableCutoffs();
+        if (cache != null) rememberBestMoves(board, possibleMoves, scores);
+        int index = tiebreakerMove(scores);
+        bestScore = scores[index];
+        return possibleMoves.get(index);
     }
 
     /**
-     * Computes and returns the best move and score for a player using the minimax algorithm.
+     * Sets the evaluator that scores positions at the end of the search depth. Without one, every position
+     * the search can not see to the end scores 0. Clears the transposition table, its scores came from the old evaluator.
+     *
+     * @param evaluator The evaluator to use, for example a {@link LineEvaluator}.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        stopPondering();
+        this.evaluator = evaluator;
+        this.alphaBeta = null;
+        this.parallel = null;
+        this.ponderSearch = null;
+        if (table != null) table.clear();
+    }
+
+    /**
+     * Searches only the moves worth searching on a big board: a winning move when there is one, otherwise the moves
+     * that block an immediate win of the opponent, otherwise the cells near an icon (see
+     * {@link Board#getCandidateMoves(int[], Icon)}). This cuts the branching factor of an open board from every empty
+     * cell to the cells around the icons, so the search gets deeper in the same time. Moves far from all icons are
+     * never searched, so on small boards it may choose a different move than a full search.
+     * Clears the transposition table, its scores came from searches over all moves.
+     *
+     * @param candidateMoves true to search only candidate moves, false to search every move (the default).
+     */
+    public void setCandidateMoves(boolean candidateMoves) {
+        stopPondering();
+        this.candidateMoves = candidateMoves;
+        this.alphaBeta = null;
+        this.parallel = null;
+        this.ponderSearch = null;
+        if (table != null) table.clear();
+    }
+
+    /**
+     * Sets a solved game to look positions up in before searching. A position that is found is played perfectly
+     * without a search, whatever the depth or tiebreaker of the player. Positions of other board sizes are searched.
+     *
+     * @param tablebase The tablebase to use, or null to always search.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Solves positions with few empty cells exactly with an {@link EndgameSolver} instead of searching them.
+     * Near the end of the game the solver is faster than a search to a fixed depth or for a time budget, and it does
+     * not miss a forced result beyond the depth. It plays the quickest win or the slowest loss, whatever the depth,
+     * time budget or tiebreaker of the player, and it does not stop at the time budget: choose a threshold the
+     * solver finishes in time: 14 empty cells take tens of milliseconds, 16 can take a second. The solver keeps its
+     * table between moves.
+     *
+     * @param emptyCells The largest number of empty cells that is solved, 0 (the default) to always search.
+     */
+    public void setEndgameThreshold(int emptyCells) {
+        stopPondering();
+        this.endgameThreshold = emptyCells;
+    }
+
+    /**
+     * Sets a cache of search results shared with other players, for example {@link EvaluationCache#shared()}.
+     * A position another player with the same rules, depth and evaluator already searched is then played without
+     * a search. The cache holds every move with the best score, the tiebreaker of this player picks one of them.
+     * Players with a time budget or a depth above {@link EvaluationCache#MAX_DEPTH} do not use the cache.
+     *
+     * @param cache The cache to use, or null to always search.
+     */
+    public void setEvaluationCache(EvaluationCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the listener that receives the statistics of every move. Without a listener no statistics are collected.
+     *
+     * @param listener The listener, for example a {@link SearchMetrics}, or {@link SearchListener#NONE}.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the pool the {@link SearchMode#PARALLEL} search runs on. The common pool is used by default.
+     *
+     * @param pool The pool to run the search on.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        this.parallel = null;
+    }
+
+    /**
+     * Returns the number of nodes (positions) the search visited during the last call to {@link #getMove(Board)}.
+     *
+     * @return The number of visited nodes.
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Returns the transposition table the alpha-beta search uses, creating a default one on first use.
+     *
+     * @return The transposition table, or null if it was turned off.
+     */
+    public TranspositionTable getTranspositionTable() {
+        if (table == null && useTable) table = new TranspositionTable(DEFAULT_TABLE_MEGABYTES);
+        return table;
+    }
+
+    /**
+     * Sets the transposition table the alpha-beta search uses. A table can be shared by multiple players, also with
+     * other rules, evaluators or candidate move settings: their entries are kept apart by the keys.
+     *
+     * @param table The transposition table to use, or null to search without one.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        stopPondering();
+        this.table = table;
+        this.useTable = table != null;
+        this.alphaBeta = null;
+        this.parallel = null;
+        this.ponderSearch = null;
+    }
+
+    /**
+     * Turns pondering on or off. A pondering player keeps searching after its move, on the pool of the player:
+     * it searches its answer to every reply of the opponent, the most likely replies first, in the transposition table
+     * of the player. When the opponent's reply was searched already, the next move is played without a search
+     * (a ponder hit). When it was not, the background search is stopped before the player searches as usual.
+     * Pondering finds the same moves as searching, it only uses the time the opponent is thinking.
+     *
+     * @param pondering true to search on the opponent's time, false to stop pondering.
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) stopPondering();
+    }
+
+    /**
+     * Stops pondering, the opponent will not reply anymore.
+     */
+    @Override
+    public void gameOver() {
+        stopPondering();
+    }
+
+    /**
+     * Stops the background search of the replies to the last move, for example when the game is over.
+     * Returns when the background search has stopped.
+     */
+    public void stopPondering() {
+        Ponder ponder = this.ponder;
+        this.ponder = null;
+        if (ponder == null) return;
+        ponder.cancel();
+        ponder.done.join();
+    }
+
+    /**
+     * Returns the number of moves that were found by pondering.
+     *
+     * @return The number of ponder hits.
+     */
+    public long getPonderHits() {
+        return ponderHits;
+    }
+
+    /**
+     * Returns the number of moves that were searched while pondering was on, because the reply was not pondered yet.
+     *
+     * @return The number of ponder misses.
+     */
+    public long getPonderMisses() {
+        return ponderMisses;
+    }
+
+    /**
+     * Starts the background search of the replies to a move, unless the move ends the game.
+     *
+     * @param board The board before the move.
+     * @param move The move of this player.
+     */
+    private void startPondering(Board board, Position move) {
+        Board next = board.copy();
+        next.set(move, getIcon());
+        if (next.isWinner(getIcon()) || next.isFull()) return;
+
+        if (ponderSearch == null || ponderSearch.rules != next.getRules()) {
+            ponderSearch = new AlphaBetaSearch(next.getRules(), getTranspositionTable());
+            ponderSearch.setEvaluator(evaluator);
+            ponderSearch.setCandidateMoves(candidateMoves);
+        }
+        ponderSearch.resetNodes();
+        if (table != null) table.newSearch();
+        ponder = new Ponder(next, ponderSearch);
+    }
+
+    /**
+     * Ends the background search and returns its move for a board, if it has one. A search of the board that is
+     * still running is finished first, the search of any other board is stopped.
+     *
+     * @param board The current game board.
+     * @return The pondered move, or null if the board has to be searched.
+     */
+    private Position ponderHit(Board board) {
+        Ponder ponder = this.ponder;
+        if (ponder == null) return null;
+        this.ponder = null;
+
+        long key = board.hash();
+        CompletableFuture<Position> reply = ponder.rules == board.getRules() ? ponder.replies.get(key) : null;
+        ponder.answered = true;
+        // Only a running search of this board is worth waiting for
+        if (reply == null || reply.isDone() || ponder.searching != key) ponder.cancel();
+        ponder.done.join();
+
+        Position move = reply == null ? null : reply.getNow(null);
+        if (move == null) ponderMisses++;
+        else ponderHits++;
+        return move;
+    }
+
+    /**
+     * The background search of the replies to the last move of this player, see {@link #setPondering(boolean)}.
+     */
+    private final class Ponder {
+        final Rules rules;
+        final AlphaBetaSearch search;
+        // The move of this player after every reply, by the hash of the board after the reply
+        final Map<Long, CompletableFuture<Position>> replies = new ConcurrentHashMap<>();
+        final CompletableFuture<Void> done;
+        // The hash of the board after the reply that is being searched
+        volatile long searching;
+        // Set when the reply arrived, the search of the current reply finishes but no other one starts
+        volatile boolean answered;
+        volatile boolean stopped;
+
+        /**
+         * Starts the background search.
+         *
+         * @param board The board after the move of this player, owned by the search.
+         * @param search The search to use, not used by others until the background search is done.
+         */
+        Ponder(Board board, AlphaBetaSearch search) {
+            this.rules = board.getRules();
+            this.search = search;
+
+            // The replies the search expects to be best for the opponent first
+            List<Position> moves = board.getPossibleMoves();
+            int[] order = search.orderRootMoves(board, Math.max(ply, 0), moves);
+            Icon opponent = getIcon().opponent();
+            for (Position move : moves) {
+                int cell = board.index(move);
+                board.set(cell, opponent);
+                replies.put(board.hash(), new CompletableFuture<>());
+                board.remove(cell);
+            }
+
+            done = CompletableFuture.runAsync(() -> run(board, moves, order), pool);
+        }
+
+        /**
+         * Searches the replies in order until all are searched or the search is stopped.
+         *
+         * @param board The board after the move of this player.
+         * @param moves The replies of the opponent.
+         * @param order The order to search the replies in.
+         */
+        private void run(Board board, List<Position> moves, int[] order) {
+            Icon opponent = getIcon().opponent();
+            try {
+                for (int i : order) {
+                    if (answered || stopped) return;
+                    int cell = board.index(moves.get(i));
+                    board.set(cell, opponent);
+                    long key = board.hash();
+                    searching = key;
+
+                    // No move is asked after a reply that ends the game
+                    if (!board.isWinner(opponent) && !board.isFull()) {
+                        Position move = think(board);
+                        if (move == null) return;
+                        replies.get(key).complete(move);
+                    }
+                    board.remove(cell);
+                }
+            }
+            catch (AlphaBetaSearch.SearchTimeout e) {
+                // Stopped, the board is left as it is
+            }
+            catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Pondering failed", e);
+            }
+        }
+
+        /**
+         * Chooses a move the way {@link AIPlayer#getMove(Board)} would.
+         *
+         * @param board The board after a reply.
+         * @return The move, or null if the search was stopped or the board is left to the endgame solver.
+         * @throws AlphaBetaSearch.SearchTimeout when the search is stopped.
+         */
+        private Position think(Board board) {
+            if (tablebase != null) {
+                Tablebase.Entry entry = tablebase.probe(board, getIcon());
+                if (entry != null) return entry.move();
+            }
+            // The solver is quick but can not be stopped, so the end of the game is left to getMove
+            if (board.getEmptyCells() <= endgameThreshold) return null;
+
+            List<Position> moves = rootMoves(board);
+            if (budget == null) {
+                if (!arm(Long.MAX_VALUE)) return null;
+                return moves.get(tiebreakerMove(search.scoreMoves(board, ply, getIcon(), moves)));
+            }
+
+            // Iterative deepening for the time budget of a move, like timedMove
+            long deadline = System.nanoTime() + budget.toNanos();
+            Position best = null;
+            for (int depth = 0; depth < board.getEmptyCells(); depth++) {
+                if (!arm(depth == 0 ? Long.MAX_VALUE : deadline)) return null;
+                try {
+                    int[] scores = search.scoreMoves(board.copy(), depth, getIcon(), moves, best);
+                    best = moves.get(tiebreakerMove(scores));
+                }
+                catch (AlphaBetaSearch.SearchTimeout e) {
+                    if (stopped) return null;
+                    break;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Sets the deadline of the search unless the search is stopped.
+         *
+         * @param deadline The deadline as a {@link System#nanoTime()} value.
+         * @return false if the search is stopped otherwise true.
+         */
+        private boolean arm(long deadline) {
+            search.setDeadline(deadline);
+            // Read after the write, so a stop that set the deadline before it is seen here
+            return !stopped;
+        }
+
+        /**
+         * Stops the search, it ends within a few thousand nodes.
+         */
+        void cancel() {
+            stopped = true;
+            search.setDeadline(System.nanoTime() - 1);
+        }
+    }
+
+    /**
+     * Computes and returns the best score for a player using the minimax algorithm.
+     * The best move is stored in {@link #bestMove}, the root call writes it last.
      *
      * @param ply The depth of the search tree (number of ply) to explore.
      * @param board The current game board.
      * @param player The player for whom the best move and score are being computed.
-     * @return A `MoveScore` object representing the best move and its associated score.
+     * @return The score of the best move.
      */
-    private MoveScore minimax(int ply, Board board, Icon player) {
-        // Get all possible moves
-        List<Position> possibleMoves = board.getPossibleMoves();
-        int[] scores = new int[possibleMoves.size()];
+    private int minimax(int ply, Board board, Icon player) {
+        // Get all possible moves, in the buffers of this number of empty cells
+        int[] possibleMoves = moveBuffers[board.getEmptyCells()];
+        int[] scores = scoreBuffers[board.getEmptyCells()];
+        int count = candidateMoves
+                ? board.getCandidateMoves(possibleMoves, player) : board.getPossibleMoves(possibleMoves);
 
-        for (int i = 0; i < possibleMoves.size(); i++) {
+        for (int i = 0; i < count; i++) {
             // Temporarily put move on the board
-            Position move = possibleMoves.get(i);
+            int move = possibleMoves[i];
             board.set(move, player);
+            nodes++;
 
             // Give the current move a score.
             // Ply is added for wins and losses to give a higher score for
             // the quickest win and a lower score for a quicker loss.
-            // +10 if the player wins
-            if (board.isWinner(player)) scores[i] = 10 + ply;
+            // +10 (the win score) if the player wins
+            if (board.isWinner(player)) scores[i] = evaluator.winScore() + ply;
             // -10 if the player loses
-            else if (board.isWinner(player.opponent())) scores[i] = -10 - ply;
+            else if (board.isWinner(player.opponent())) scores[i] = -evaluator.winScore() - ply;
             // 0 if it's a draw
             else if (board.isFull()) scores[i] = 0;
-            // 0 if the ply is 0
-            else if (ply == 0) scores[i] = 0;
+            // The evaluation if the ply is 0, which is 0 without an evaluator
+            else if (ply == 0) scores[i] = evaluator.evaluate(board, player);
             // Else calculate the opponent score and invert it
-            else scores[i] = -1 * minimax(ply - 1, board, player.opponent()).score;
+            else scores[i] = -1 * minimax(ply - 1, board, player.opponent());
 
             // Remove the move
             board.remove(move);
         }
 
-        // Return the best move and score
-        int index = tiebreakerMove(scores);
-        return new MoveScore(possibleMoves.get(index), scores[index]);
+        // Return the best score and remember the best move
+        int index = tiebreakerMove(scores, count);
+        bestMove = possibleMoves[index];
+        return scores[index];
     }
 
     /**
@@ -98,44 +863,50 @@ public class AIPlayer extends Player {
      * @return The index of the best score in the array.
      */
     private int tiebreakerMove(int[] scores) {
+        return tiebreakerMove(scores, scores.length);
+    }
+
+    /**
+     * Decides the best move in the start of an array, without allocating.
+     * If multiple scores are the best it will decide based on the set tiebreaker.
+     *
+     * @param scores An array of scores to choose from.
+     * @param count The number of scores to consider.
+     * @return The index of the best score in the array.
+     */
+    private int tiebreakerMove(int[] scores, int count) {
         // Return 0 if array has only one item
-        if (scores.length == 1) return 0;
-
-        // Add all the indices of the biggest numbers to a list
-        int biggest = max(scores);
-        List<Integer> biggest_indices = new ArrayList<>();
-        for (int i = 0; i < scores.length; i++)
-            if (scores[i] == biggest) biggest_indices.add(i);
-
-        // Pick the number from the list based on the set tiebreaker move
-        switch (tiebreaker) {
-            case LEFT -> { return biggest_indices.get(0); }
-            case RIGHT -> { return biggest_indices.get(biggest_indices.size() - 1); }
-            default -> {
-                int index = random.nextInt(biggest_indices.size());
-                return biggest_indices.get(index);
-            }
-        }
+        if (count == 1) return 0;
+
+        // Count the indices of the biggest numbers
+        int biggest = max(scores, count);
+        int ties = 0;
+        for (int i = 0; i < count; i++)
+            if (scores[i] == biggest) ties++;
+
+        // Pick the number based on the set tiebreaker move
+        int pick = switch (tiebreaker) {
+            case LEFT -> 0;
+            case RIGHT -> ties - 1;
+            default -> random.nextInt(ties);
+        };
+
+        for (int i = 0; i < count; i++)
+            if (scores[i] == biggest && pick-- == 0) return i;
+        throw new IllegalStateException("No best score");
     }
 
     /**
-     * Finds the biggest number in an array.
+     * Finds the biggest number in the start of an array.
      *
      * @param numbers An array of numbers.
+     * @param count The number of numbers to consider.
      * @return The biggest number in the array.
      */
-    private int max(int[] numbers) {
+    private int max(int[] numbers, int count) {
         int highest = Integer.MIN_VALUE;
-        for (int num : numbers)
-            if (num > highest) highest = num;
+        for (int i = 0; i < count; i++)
+            if (numbers[i] > highest) highest = numbers[i];
         return highest;
     }
-
-    /**
-     * A data structure that stores a move and an associated score.
-     *
-     * @param move The move associated with this record.
-     * @param score The score associated with the move.
-     */
-    private record MoveScore(Position move, int score) { }
 }
@@ -0,0 +1,468 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A negamax search with alpha-beta pruning that returns the same scores as the plain minimax search of {@link AIPlayer}.
+ * Moves are ordered center and corners first, then by killer moves and finally by the history heuristic.
+ * Positions are looked up in an optional {@link TranspositionTable} under their symmetry-canonical key, salted with
+ * the rules and settings of the search so that differently configured searches can share a table. Entries are only
+ * used when they were searched with the same remaining depth, because scores depend on it.
+ * Below the root the search does not allocate: moves are cell indices in buffers that are reused per ply.
+ * An instance keeps its history table between searches and is not thread-safe.
+ */
+public class AlphaBetaSearch {
+    /** A score bigger than any score the search can return. */
+    static final int INFINITY = 1 << 30;
+
+    private static final int STATIC_BONUS = 1 << 28;
+    private static final int KILLER_BONUS = 1 << 24;
+
+    public final Rules rules;
+    private final int[] staticOrder;
+    private final int[] history;
+    private final TranspositionTable table;
+    private Evaluator evaluator = Evaluator.NONE;
+    private boolean candidateMoves;
+    // Mixed into every key of the table, so searches with other settings sharing the table do not read these entries
+    private long salt;
+    private int rootPly = -1;
+    private int[] killers;
+    private int[][] moveBuffers = new int[0][];
+    private int[][] keyBuffers = new int[0][];
+    private long nodes;
+    private long terminals;
+    private long cutoffs;
+    private long tableCutoffs;
+    private volatile long deadline = Long.MAX_VALUE;
+
+    /**
+     * Creates a new instance of the {@link AlphaBetaSearch} class.
+     *
+     * @param rules The rules of the boards that will be searched.
+     * @param table The transposition table to use, or null to search without one.
+     */
+    public AlphaBetaSearch(Rules rules, TranspositionTable table) {
+        this.rules = rules;
+        this.table = table;
+        this.staticOrder = staticOrder(rules);
+        this.history = new int[rules.cells];
+        this.salt = salt();
+    }
+
+    /**
+     * Scores every possible move of a board. Moves that tie with the best score get their exact score,
+     * worse moves may get any score lower than the best, so a tiebreaker on the result picks the same moves as minimax.
+     *
+     * @param board The board to search, it is restored before returning.
+     * @param ply The depth of the search tree (number of ply) to explore.
+     * @param player The player to move.
+     * @param moves The moves to score, in the order the tiebreaker uses.
+     * @return The score of each move, in the same order as the moves.
+     */
+    public int[] scoreMoves(Board board, int ply, Icon player, List<Position> moves) {
+        return scoreMoves(board, ply, player, moves, null);
+    }
+
+    /**
+     * Scores every possible move of a board, searching a given move first.
+     * See {@link #scoreMoves(Board, int, Icon, List)}.
+     *
+     * @param board The board to search, it is only restored if the search finishes.
+     * @param ply The depth of the search tree (number of ply) to explore.
+     * @param player The player to move.
+     * @param moves The moves to score, in the order the tiebreaker uses.
+     * @param first The move to search first, usually the best move of a shallower search, or null.
+     * @return The score of each move, in the same order as the moves.
+     * @throws SearchTimeout when the deadline passes during the search.
+     */
+    public int[] scoreMoves(Board board, int ply, Icon player, List<Position> moves, Position first) {
+        prepare(ply, board);
+        int[] scores = new int[moves.size()];
+        int best = -INFINITY;
+
+        int[] order = orderRootMoves(board, ply, moves);
+        for (int k = 1; first != null && k < order.length; k++) {
+            if (!moves.get(order[k]).equals(first)) continue;
+            int index = order[k];
+            System.arraycopy(order, 0, order, 1, k);
+            order[0] = index;
+            break;
+        }
+
+        for (int i : order) {
+            // A window just below the best score keeps ties exact
+            scores[i] = scoreMove(board, ply, player, moves.get(i), best - 1);
+            if (scores[i] > best) best = scores[i];
+        }
+
+        return scores;
+    }
+
+    /**
+     * Scores a single move at the root of the search. The score is exact if it is bigger than alpha,
+     * otherwise it is an upper bound that is at most alpha.
+     *
+     * @param board The board to search, it is restored before returning.
+     * @param ply The depth of the search tree (number of ply) to explore.
+     * @param player The player to move.
+     * @param move The move to score.
+     * @param alpha The lower bound of the window.
+     * @return The score of the move.
+     */
+    public int scoreMove(Board board, int ply, Icon player, Position move, int alpha) {
+        if (rootPly != ply) prepare(ply, board);
+
+        int cell = board.index(move);
+        board.set(cell, player);
+        visit();
+        int score = score(board, ply, player, alpha, INFINITY);
+        board.remove(cell);
+        return score;
+    }
+
+    /**
+     * Sorts the moves at the root of the search from most to least promising.
+     *
+     * @param board The board that will be searched.
+     * @param ply The depth of the search tree (number of ply) to explore.
+     * @param moves The moves to order.
+     * @return The indices of the moves in search order.
+     */
+    public int[] orderRootMoves(Board board, int ply, List<Position> moves) {
+        if (rootPly != ply) prepare(ply, board);
+
+        int count = moves.size();
+        int[] order = new int[count];
+        int[] keys = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            Position move = moves.get(i);
+            order[i] = i;
+            keys[i] = orderKey(board.index(move), -1, 0);
+        }
+
+        sort(order, keys, count);
+        return order;
+    }
+
+    /**
+     * Returns the number of nodes (positions) visited since the last reset.
+     *
+     * @return The number of visited nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of visited positions where the game was over, since the last reset.
+     *
+     * @return The number of won, lost or drawn positions.
+     */
+    public long getTerminals() {
+        return terminals;
+    }
+
+    /**
+     * Returns the number of times a move was good enough to skip the remaining moves, since the last reset.
+     *
+     * @return The number of beta cutoffs.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Returns the number of positions the transposition table answered without a search, since the last reset.
+     *
+     * @return The number of transposition table cutoffs.
+     */
+    public long getTableCutoffs() {
+        return tableCutoffs;
+    }
+
+    /**
+     * Resets the node counter and the other counters to zero.
+     */
+    public void resetNodes() {
+        nodes = terminals = cutoffs = tableCutoffs = 0;
+    }
+
+    /**
+     * Sets the moment the search has to stop. When it passes, the search throws a {@link SearchTimeout}
+     * and leaves the board in an undefined state. It may be set from another thread to stop a running search.
+     *
+     * @param deadline The deadline as a {@link System#nanoTime()} value, {@link Long#MAX_VALUE} for none.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets the evaluator that scores positions at the end of the search depth.
+     * Entries in the transposition table of searches with another evaluator are not used.
+     *
+     * @param evaluator The evaluator to use, {@link Evaluator#NONE} by default.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.salt = salt();
+    }
+
+    /**
+     * Restricts the moves below the root to {@link Board#getCandidateMoves(int[], Icon)}: winning and blocking moves
+     * when there are any, otherwise the cells near an icon. The scores are then those of the smaller tree,
+     * so entries in the transposition table of searches over all moves are not used, nor the other way around.
+     *
+     * @param candidateMoves true to search only candidate moves, false to search every move (the default).
+     */
+    public void setCandidateMoves(boolean candidateMoves) {
+        this.candidateMoves = candidateMoves;
+        this.salt = salt();
+    }
+
+    /**
+     * Computes the salt of the table keys from everything besides the position that changes its score:
+     * the rules, including k, the evaluator and whether only candidate moves are searched.
+     * The Zobrist keys only depend on the size of the board, so without it games with another k would collide.
+     *
+     * @return The salt.
+     */
+    private long salt() {
+        long settings = Objects.hash(rules.rows, rules.cols, rules.k, evaluator.getClass().getName(), candidateMoves);
+        return settings * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Thrown when a search passes its deadline.
+     */
+    public static class SearchTimeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final SearchTimeout INSTANCE = new SearchTimeout();
+
+        /**
+         * Creates the shared instance, without a stack trace because it is only used for control flow.
+         */
+        private SearchTimeout() {
+            super("Search deadline passed", null, false, false);
+        }
+    }
+
+    /**
+     * Counts a visited node and checks the deadline every 1024 nodes.
+     */
+    private void visit() {
+        if ((++nodes & 1023) == 0 && deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0)
+            throw SearchTimeout.INSTANCE;
+    }
+
+    /**
+     * Clears the killer moves for a new search and makes sure there is a move buffer for every ply the search can reach.
+     *
+     * @param ply The depth of the search tree (number of ply) to explore.
+     * @param board The board that will be searched.
+     */
+    private void prepare(int ply, Board board) {
+        rootPly = ply;
+
+        // A line of play can not be longer than the number of empty cells, whatever depth is asked for
+        int depth = Math.min(ply, board.getEmptyCells()) + 1;
+        killers = new int[2 * depth];
+        Arrays.fill(killers, -1);
+        if (moveBuffers.length < depth) {
+            moveBuffers = new int[depth][rules.cells];
+            keyBuffers = new int[depth][rules.cells];
+        }
+    }
+
+    /**
+     * Scores the move that was just played, using the same rules as minimax.
+     *
+     * @param board The board with the move on it.
+     * @param ply The remaining depth of the search tree.
+     * @param player The player that did the move.
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The score of the move for the player.
+     */
+    private int score(Board board, int ply, Icon player, int alpha, int beta) {
+        if (board.isWinner(player)) {
+            terminals++;
+            return evaluator.winScore() + ply;
+        }
+        if (board.isWinner(player.opponent())) {
+            terminals++;
+            return -evaluator.winScore() - ply;
+        }
+        if (board.isFull()) {
+            terminals++;
+            return 0;
+        }
+        if (ply == 0) return evaluator.evaluate(board, player);
+        return -negamax(board, ply - 1, player.opponent(), -beta, -alpha);
+    }
+
+    /**
+     * Computes the fail-soft alpha-beta score of a board for the player to move.
+     *
+     * @param board The board to search, it is restored before returning.
+     * @param ply The remaining depth of the search tree.
+     * @param player The player to move.
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The score of the board, exact if it lies within the window.
+     */
+    private int negamax(Board board, int ply, Icon player, int alpha, int beta) {
+        int symmetry = 0;
+        long key = 0;
+        int hashMove = -1;
+
+        if (table != null) {
+            symmetry = board.canonicalSymmetry();
+            key = board.hash(symmetry) ^ (player == Icon.O ? Zobrist.SIDE : 0) ^ salt;
+            long entry = table.probe(key);
+
+            if (entry != 0) {
+                int move = TranspositionTable.move(entry);
+                if (move >= 0) hashMove = board.getZobrist().unmap(symmetry, move);
+
+                if (TranspositionTable.depth(entry) == ply) {
+                    int score = TranspositionTable.score(entry);
+                    switch (TranspositionTable.bound(entry)) {
+                        case TranspositionTable.EXACT -> {
+                            tableCutoffs++;
+                            return score;
+                        }
+                        case TranspositionTable.LOWER -> alpha = Math.max(alpha, score);
+                        default -> beta = Math.min(beta, score);
+                    }
+                    if (alpha >= beta) {
+                        tableCutoffs++;
+                        return score;
+                    }
+                }
+            }
+        }
+
+        // Fill and sort this ply's move buffer
+        int distance = rootPly - ply;
+        int[] moves = moveBuffers[distance];
+        int[] keys = keyBuffers[distance];
+        int count = candidateMoves ? board.getCandidateMoves(moves, player) : board.getPossibleMoves(moves);
+        for (int i = 0; i < count; i++) keys[i] = orderKey(moves[i], hashMove, distance);
+        sort(moves, keys, count);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestCell = -1;
+
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            board.set(cell, player);
+            visit();
+            int score = score(board, ply, player, alpha, beta);
+            board.remove(cell);
+
+            if (score > best) {
+                best = score;
+                bestCell = cell;
+                if (best > alpha) alpha = best;
+                if (alpha >= beta) {
+                    cutoffs++;
+                    storeCutoff(bestCell, distance, ply);
+                    break;
+                }
+            }
+        }
+
+        // Deeper searches than an entry can hold are not stored, they are only reached with an absurd ply
+        if (table != null && ply <= TranspositionTable.MAX_DEPTH) {
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, ply, best, bound, board.getZobrist().map(symmetry, bestCell));
+        }
+
+        return best;
+    }
+
+    /**
+     * Remembers a move that caused a cutoff as killer move and in the history table.
+     *
+     * @param cell The cell index of the move.
+     * @param distance The distance from the root of the search.
+     * @param ply The remaining depth of the search tree.
+     */
+    private void storeCutoff(int cell, int distance, int ply) {
+        int slot = 2 * distance;
+        if (killers[slot] != cell) {
+            killers[slot + 1] = killers[slot];
+            killers[slot] = cell;
+        }
+
+        // Deeper cutoffs are worth more, stay below the killer bonus
+        history[cell] = Math.min(history[cell] + (ply + 1) * (ply + 1), KILLER_BONUS - 1);
+    }
+
+    /**
+     * Computes how promising a move is, higher is searched earlier.
+     *
+     * @param cell The cell index of the move.
+     * @param hashMove The cell index of the best move from the transposition table, or -1 if there is none.
+     * @param distance The distance from the root of the search.
+     * @return The ordering key of the move.
+     */
+    private int orderKey(int cell, int hashMove, int distance) {
+        if (cell == hashMove) return Integer.MAX_VALUE;
+
+        int key = staticOrder[cell] + history[cell];
+        if (cell == killers[2 * distance]) key += 2 * KILLER_BONUS;
+        else if (cell == killers[2 * distance + 1]) key += KILLER_BONUS;
+        return key;
+    }
+
+    /**
+     * Sorts moves by descending key, in place. Insertion sort, the lists are short.
+     *
+     * @param moves The moves to sort.
+     * @param keys The ordering key of each move, sorted along.
+     * @param count The number of moves.
+     */
+    private static void sort(int[] moves, int[] keys, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int key = keys[i];
+            int j = i;
+            while (j > 0 && keys[j - 1] < key) {
+                keys[j] = keys[j - 1];
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            keys[j] = key;
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Gives the center and corner cells of a board a bonus so they are searched first.
+     *
+     * @param rules The rules of the board.
+     * @return The static ordering bonus of each cell.
+     */
+    private static int[] staticOrder(Rules rules) {
+        int[] bonus = new int[rules.cells];
+        int rows = rules.rows;
+        int cols = rules.cols;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                boolean center = (i == (rows - 1) / 2 || i == rows / 2) && (j == (cols - 1) / 2 || j == cols / 2);
+                boolean corner = (i == 0 || i == rows - 1) && (j == 0 || j == cols - 1);
+                if (center) bonus[i * cols + j] = 2 * STATIC_BONUS;
+                else if (corner) bonus[i * cols + j] = STATIC_BONUS;
+            }
+        }
+
+        return bonus;
+    }
+}
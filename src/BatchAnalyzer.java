@@ -0,0 +1,294 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Finds the best move and its score for many positions at once, for analysis jobs.
+ * <p>
+ * Compared to calling {@link AIPlayer#getMove(Board)} per position, the analyzer searches every position only once:
+ * a position that is a duplicate, or a rotation or reflection, of an earlier one reuses its result. All searches share
+ * one transposition table, so positions that lead to the same positions share work too. The searches run in parallel
+ * on a pool, and at most a fixed number of positions are in flight: reading the input waits while the pool is behind,
+ * so a lazy stream of positions is never read much faster than it is analyzed.
+ * <p>
+ * The player to move follows from the number of icons on the board, X moves first. Ties are broken by the lowest cell
+ * of the rotation or reflection the positions are keyed by, so results are deterministic and do not depend on which
+ * symmetric copy of a position comes first. Only the searches in flight and a cache of bounded size are kept, so a
+ * batch of any length runs in bounded memory.
+ */
+public class BatchAnalyzer {
+    private static final int DEFAULT_TABLE_MEGABYTES = 64;
+    private static final int DEFAULT_CACHE_MEGABYTES = 16;
+
+    private final int ply;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private TranspositionTable table;
+    private Evaluator evaluator = Evaluator.NONE;
+    private int maxInFlight = 4 * ForkJoinPool.commonPool().getParallelism();
+    private int cacheMegabytes = DEFAULT_CACHE_MEGABYTES;
+    // The search of every thread, replaced when the settings change
+    private ThreadLocal<AlphaBetaSearch> searches = new ThreadLocal<>();
+    private final LongAdder searched = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    /**
+     * The analysis of one position.
+     *
+     * @param index The index of the position in the input, from 0.
+     * @param move The best move, or null if the game is already over.
+     * @param score The score of the best move for the player to move, 0 if the game is already over.
+     * @param reused true if the result came from an earlier duplicate or symmetric position.
+     */
+    public record Result(int index, Position move, int score, boolean reused) { }
+
+    // The result of a searched position, with the move in canonical orientation
+    private record Canonical(int move, int score) { }
+
+    /**
+     * Creates a new instance of the {@link BatchAnalyzer} class.
+     *
+     * @param ply The depth of the search tree (number of ply) to explore for every position.
+     */
+    public BatchAnalyzer(int ply) {
+        this.ply = ply;
+    }
+
+    /**
+     * Analyzes all positions and returns the results in the order of the input.
+     *
+     * @param positions The positions to analyze.
+     * @return The result of every position.
+     */
+    public List<Result> analyze(Stream<Board> positions) {
+        List<Result> results = new ArrayList<>();
+        analyze(positions, result -> {
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+        results.sort(Comparator.comparingInt(Result::index));
+        return results;
+    }
+
+    /**
+     * Analyzes all positions and passes every result to a consumer as soon as it is known, in any order.
+     * Returns when all results are passed. The consumer may be called from several threads at the same time.
+     *
+     * @param positions The positions to analyze.
+     * @param sink Receives the results.
+     */
+    public void analyze(Stream<Board> positions, Consumer<Result> sink) {
+        TranspositionTable table = getTranspositionTable();
+        table.newSearch();
+        ThreadLocal<AlphaBetaSearch> searches = this.searches;
+        // Searches in flight, so duplicates wait for them, and the finished results in a cache of bounded size
+        Map<Long, CompletableFuture<Canonical>> searching = new ConcurrentHashMap<>();
+        EvaluationCache finished = new EvaluationCache(cacheMegabytes);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger next = new AtomicInteger();
+        // The results not passed to the sink yet, counted instead of kept so a long input does not pile up futures
+        AtomicLong outstanding = new AtomicLong(1);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        positions.forEachOrdered(position -> {
+            int index = next.getAndIncrement();
+            Board board = position.copy();
+            Icon player = toMove(board);
+            if (board.isWinner(Icon.X) || board.isWinner(Icon.O) || board.isFull()) {
+                sink.accept(new Result(index, null, 0, false));
+                return;
+            }
+
+            int symmetry = board.canonicalSymmetry();
+            // Zobrist hashes only depend on the size of the board, the rules keep games with another k apart
+            Rules rules = board.getRules();
+            long key = board.hash(symmetry) ^ (player == Icon.O ? Zobrist.SIDE : 0)
+                    ^ Objects.hash(rules.rows, rules.cols, rules.k) * 0x9E3779B97F4A7C15L;
+            CompletableFuture<Canonical> search = new CompletableFuture<>();
+            CompletableFuture<Canonical> first = searching.putIfAbsent(key, search);
+            if (first == null) {
+                // A finished search is stored before it leaves the map, so it is found in one of both
+                long entry = finished.probe(key);
+                if (entry != 0) {
+                    searching.remove(key, search);
+                    first = CompletableFuture.completedFuture(
+                            new Canonical(EvaluationCache.move(entry), EvaluationCache.score(entry)));
+                }
+            }
+
+            if (first == null) {
+                // Wait here while the pool is behind, so the input is not read ahead without bound
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try {
+                        Canonical canonical = search(board, player, symmetry, table, searches);
+                        finished.store(key, 0, canonical.score(), canonical.move());
+                        searching.remove(key);
+                        search.complete(canonical);
+                    }
+                    catch (RuntimeException e) {
+                        searching.remove(key);
+                        search.completeExceptionally(e);
+                    }
+                    finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            boolean duplicate = first != null;
+            CompletableFuture<Canonical> result = duplicate ? first : search;
+            outstanding.incrementAndGet();
+            result.thenAccept(canonical -> {
+                Position move = board.position(board.getZobrist().unmap(symmetry, canonical.move()));
+                (duplicate ? reused : searched).increment();
+                sink.accept(new Result(index, move, canonical.score(), duplicate));
+            }).whenComplete((ignored, e) -> {
+                if (e != null) done.completeExceptionally(e);
+                else if (outstanding.decrementAndGet() == 0) done.complete(null);
+            });
+        });
+
+        if (outstanding.decrementAndGet() == 0) done.complete(null);
+        done.join();
+    }
+
+    /**
+     * Sets the memory for the results of finished searches, which later duplicates of a position reuse.
+     * When it is full the least used results are dropped and their positions searched again.
+     *
+     * @param megabytes The approximate amount of memory per batch, 16 MB by default.
+     */
+    public void setCacheMegabytes(int megabytes) {
+        this.cacheMegabytes = megabytes;
+    }
+
+    /**
+     * Sets the pool the searches run on. The common pool is used by default.
+     *
+     * @param pool The pool to search on.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the number of positions that may be searched or waiting for a thread at the same time.
+     *
+     * @param maxInFlight The maximum number of positions in flight, 4 per thread of the common pool by default.
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Sets the evaluator that scores positions at the end of the search depth.
+     * Clears the transposition table, its scores came from the old evaluator.
+     *
+     * @param evaluator The evaluator to use, {@link Evaluator#NONE} by default.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.searches = new ThreadLocal<>();
+        if (table != null) table.clear();
+    }
+
+    /**
+     * Returns the transposition table shared by all searches, creating a 64 MB table on first use.
+     *
+     * @return The transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        if (table == null) table = new TranspositionTable(DEFAULT_TABLE_MEGABYTES);
+        return table;
+    }
+
+    /**
+     * Sets the transposition table shared by all searches, for example the table of an {@link AIPlayer}.
+     *
+     * @param table The transposition table to use.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+        this.searches = new ThreadLocal<>();
+    }
+
+    /**
+     * Returns the number of positions that were searched.
+     *
+     * @return The number of searched positions.
+     */
+    public long getSearched() {
+        return searched.sum();
+    }
+
+    /**
+     * Returns the number of positions that reused the result of an earlier position.
+     *
+     * @return The number of reused results.
+     */
+    public long getReused() {
+        return reused.sum();
+    }
+
+    /**
+     * Searches a position on the current thread.
+     *
+     * @param board The position, owned by the caller.
+     * @param player The player to move.
+     * @param symmetry The canonical symmetry of the position.
+     * @param table The transposition table of the batch.
+     * @param searches The search of every thread.
+     * @return The best move in canonical orientation and its score.
+     */
+    private Canonical search(Board board, Icon player, int symmetry, TranspositionTable table,
+                             ThreadLocal<AlphaBetaSearch> searches) {
+        AlphaBetaSearch search = searches.get();
+        if (search == null || search.rules != board.getRules()) {
+            search = new AlphaBetaSearch(board.getRules(), table);
+            search.setEvaluator(evaluator);
+            searches.set(search);
+        }
+
+        List<Position> moves = board.getPossibleMoves();
+        int[] scores = search.scoreMoves(board, ply, player, moves);
+        // Ties go to the lowest cell of the canonical orientation, the same for every symmetric copy of the position
+        int best = -1;
+        int bestCell = -1;
+        for (int i = 0; i < scores.length; i++) {
+            int cell = board.getZobrist().map(symmetry, board.index(moves.get(i)));
+            if (best < 0 || scores[i] > scores[best] || scores[i] == scores[best] && cell < bestCell) {
+                best = i;
+                bestCell = cell;
+            }
+        }
+        return new Canonical(bestCell, scores[best]);
+    }
+
+    /**
+     * Returns the player to move, X moves first.
+     *
+     * @param board The position.
+     * @return {@link Icon#X} if both players have the same number of icons on the board, otherwise {@link Icon#O}.
+     */
+    private static Icon toMove(Board board) {
+        int balance = 0;
+        for (int cell = 0; cell < board.getRules().cells; cell++) {
+            Icon icon = board.get(cell);
+            if (icon == Icon.X) balance++;
+            else if (icon == Icon.O) balance--;
+        }
+        return balance > 0 ? Icon.O : Icon.X;
+    }
+}
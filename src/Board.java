@@ -3,10 +3,29 @@ import java.util.List;
 
 /**
  * Represents a TicTacToe board.
+ * The cells of each player are stored as a bitboard, one bit per cell. For every line of the {@link Rules}
+ * the board counts the icons of each player, so a move only updates the lines through its cell
+ * and checking for a winner does not have to scan the board. From the same counts it keeps how many
+ * open lines (lines without icons of the opponent) each player has per number of icons, for {@link Evaluator}s.
  */
 public class Board {
+    /** The number of columns of the board, which is also the number of rows on a square board. */
     public final int size;
-    private final Icon[][] board;
+    private final Rules rules;
+    private final Zobrist zobrist;
+    private final long[] xBits;
+    private final long[] oBits;
+    private final int[] xLines;
+    private final int[] oLines;
+    private final int[] xOpen;
+    private final int[] oOpen;
+    private final long[] hashes;
+    // The number of icons near every cell, and the cells where it is not 0, only kept from the first use on
+    private int[] near;
+    private long[] nearBits;
+    private int xWins;
+    private int oWins;
+    private int empty;
 
     /**
      * Creates a new instance of the {@link Board} class.
@@ -14,16 +33,29 @@ public class Board {
      * @param size The size of the board (number of rows and columns).
      */
     public Board (int size) {
-        // Create the board
-        this.size = size;
-        this.board = new Icon[size][size];
-
-        // Fill with spaces
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                this.board[i][j] = Icon.NONE;
-            }
-        }
+        this(Rules.square(size));
+    }
+
+    /**
+     * Creates a new instance of the {@link Board} class for an (m,n,k) game.
+     *
+     * @param rules The rules that decide the dimensions of the board and when a player wins.
+     */
+    public Board(Rules rules) {
+        this.size = rules.cols;
+        this.rules = rules;
+        this.zobrist = Zobrist.of(rules);
+        this.xBits = new long[rules.words];
+        this.oBits = new long[rules.words];
+        this.xLines = new int[rules.lines()];
+        this.oLines = new int[rules.lines()];
+        this.xOpen = new int[rules.k + 1];
+        this.oOpen = new int[rules.k + 1];
+        this.hashes = new long[zobrist.symmetries];
+        this.empty = rules.cells;
+
+        // Every line starts empty, so open for both players
+        xOpen[0] = oOpen[0] = rules.lines();
     }
 
     /**
@@ -32,14 +64,71 @@ public class Board {
      * @param data The raw data off the board.
      */
     public Board(Icon[][] data) {
-        this.size = data.length;
-
-        // Check if data is valid
-        if (size == 0) throw new IllegalArgumentException("Data is empty.");
-        for (Icon[] row : data) if (row.length != size) throw new IllegalArgumentException("Board is not square.");
+        this(validSize(data));
 
         // Copy data
-        this.board = copyData(data);
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                set(i * size + j, data[i][j]);
+    }
+
+    /**
+     * Creates a copy of an existing board.
+     *
+     * @param other The board to copy.
+     */
+    private Board(Board other) {
+        this.size = other.size;
+        this.rules = other.rules;
+        this.zobrist = other.zobrist;
+        this.xBits = other.xBits.clone();
+        this.oBits = other.oBits.clone();
+        this.xLines = other.xLines.clone();
+        this.oLines = other.oLines.clone();
+        this.xOpen = other.xOpen.clone();
+        this.oOpen = other.oOpen.clone();
+        this.hashes = other.hashes.clone();
+        if (other.near != null) {
+            this.near = other.near.clone();
+            this.nearBits = other.nearBits.clone();
+        }
+        this.xWins = other.xWins;
+        this.oWins = other.oWins;
+        this.empty = other.empty;
+    }
+
+    /**
+     * Creates a board from the bitboards and hashes of a snapshot. The line counts are computed in bulk,
+     * one population count per word of every line, instead of adding the icons one by one.
+     *
+     * @param rules The rules of the board.
+     * @param zobrist The Zobrist keys of the rules.
+     * @param xBits The cells of X, copied.
+     * @param oBits The cells of O, copied.
+     * @param hashes The hash of every symmetry, copied.
+     * @param empty The number of empty cells.
+     */
+    Board(Rules rules, Zobrist zobrist, long[] xBits, long[] oBits, long[] hashes, int empty) {
+        this.size = rules.cols;
+        this.rules = rules;
+        this.zobrist = zobrist;
+        this.xBits = xBits.clone();
+        this.oBits = oBits.clone();
+        this.xLines = new int[rules.lines()];
+        this.oLines = new int[rules.lines()];
+        this.xOpen = new int[rules.k + 1];
+        this.oOpen = new int[rules.k + 1];
+        this.hashes = hashes.clone();
+        this.empty = empty;
+
+        for (int line = 0; line < xLines.length; line++) {
+            int x = xLines[line] = rules.count(xBits, line);
+            int o = oLines[line] = rules.count(oBits, line);
+            if (x == rules.k) xWins++;
+            if (o == rules.k) oWins++;
+            if (o == 0) xOpen[x]++;
+            if (x == 0) oOpen[o]++;
+        }
     }
 
     /**
@@ -49,7 +138,37 @@ public class Board {
      * @param icon The icon to put on the board.
      */
     public void set(Position position, Icon icon) {
-        board[position.row()][position.col()] = icon;
+        set(index(position), icon);
+    }
+
+    /**
+     * Sets a player icon on the board without checking if it would be a legal move.
+     *
+     * @param index The index of the cell, see {@link #index(Position)}.
+     * @param icon The icon to put on the board.
+     */
+    public void set(int index, Icon icon) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+
+        // Clear the cell first so overwriting a cell keeps the counts and hashes right
+        Icon old = (xBits[word] & bit) != 0 ? Icon.X : (oBits[word] & bit) != 0 ? Icon.O : Icon.NONE;
+        if (old != Icon.NONE) {
+            xBits[word] &= ~bit;
+            oBits[word] &= ~bit;
+            removeFromLines(old, index);
+            toggleHashes(old, index);
+            if (near != null) addNear(index, -1);
+            empty++;
+        }
+
+        if (icon == Icon.X) xBits[word] |= bit;
+        else if (icon == Icon.O) oBits[word] |= bit;
+        else return;
+        addToLines(icon, index);
+        toggleHashes(icon, index);
+        if (near != null) addNear(index, 1);
+        empty--;
     }
 
     /**
@@ -58,7 +177,16 @@ public class Board {
      * @param position The position of the cell to clear.
      */
     public void remove(Position position) {
-        board[position.row()][position.col()] = Icon.NONE;
+        set(index(position), Icon.NONE);
+    }
+
+    /**
+     * Removes a player icon from the board.
+     *
+     * @param index The index of the cell to clear, see {@link #index(Position)}.
+     */
+    public void remove(int index) {
+        set(index, Icon.NONE);
     }
 
     /**
@@ -89,11 +217,33 @@ public class Board {
         int col = move.col();
 
         // Check for illegal move
-        if (row < 0 || row > size - 1 || col < 0 || col > size - 1)
+        if (row < 0 || row > rules.rows - 1 || col < 0 || col > rules.cols - 1)
             return false;
 
         // Check if cell is occupied
-        return board[row][col] == Icon.NONE;
+        return get(move) == Icon.NONE;
+    }
+
+    /**
+     * Returns the icon in a cell of the board.
+     *
+     * @param position The position of the cell.
+     * @return The icon in the cell, {@link Icon#NONE} if it is empty.
+     */
+    public Icon get(Position position) {
+        return get(index(position));
+    }
+
+    /**
+     * Returns the icon in a cell of the board.
+     *
+     * @param index The index of the cell, see {@link #index(Position)}.
+     * @return The icon in the cell, {@link Icon#NONE} if it is empty.
+     */
+    public Icon get(int index) {
+        if ((xBits[index >>> 6] & (1L << index)) != 0) return Icon.X;
+        if ((oBits[index >>> 6] & (1L << index)) != 0) return Icon.O;
+        return Icon.NONE;
     }
 
     /**
@@ -102,26 +252,162 @@ public class Board {
      * @return A List with possible moves.
      */
     public List<Position> getPossibleMoves() {
-        List<Position> moves = new ArrayList<>();
+        List<Position> moves = new ArrayList<>(empty);
 
         // Put positions off all empty cells in List
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (board[i][j] == Icon.NONE)
-                    moves.add(new Position(i, j));
+        for (int w = 0; w < rules.words; w++) {
+            long free = ~(xBits[w] | oBits[w]) & rules.full(w);
+            while (free != 0) {
+                moves.add(rules.position((w << 6) + Long.numberOfTrailingZeros(free)));
+                free &= free - 1;
             }
         }
 
         return moves;
     }
 
+    /**
+     * Puts the cell indices of all moves that are still available in an array, without allocating.
+     *
+     * @param moves The array to fill, at least {@link #getEmptyCells()} long.
+     * @return The number of possible moves.
+     */
+    public int getPossibleMoves(int[] moves) {
+        int count = 0;
+        for (int w = 0; w < rules.words; w++) {
+            long free = ~(xBits[w] | oBits[w]) & rules.full(w);
+            while (free != 0) {
+                moves[count++] = (w << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the cells worth searching for a player into a buffer, in ascending order. When the player can win
+     * at once these are the winning cells; otherwise, when the opponent threatens to win, the cells that block it;
+     * otherwise the empty cells near an icon, two rows and columns away at most. On an empty board it is the center.
+     * Moves far from all icons are often fine on a big board but are never needed to win or block in one move,
+     * so searching only these moves is a heuristic, except for the wins and blocks.
+     *
+     * @param moves The buffer, at least {@link #getEmptyCells()} long.
+     * @param player The player to move.
+     * @return The number of moves.
+     */
+    public int getCandidateMoves(int[] moves, Icon player) {
+        int count = getThreats(player, moves);
+        if (count > 0) return count;
+        count = getThreats(player.opponent(), moves);
+        if (count > 0) return count;
+
+        if (empty == rules.cells) {
+            moves[0] = rules.rows / 2 * rules.cols + rules.cols / 2;
+            return 1;
+        }
+
+        // Boards that never generate candidates do not pay for keeping them, the others count from here on
+        if (near == null) {
+            near = new int[rules.cells];
+            nearBits = new long[rules.words];
+            for (int cell = 0; cell < rules.cells; cell++) if (get(cell) != Icon.NONE) addNear(cell, 1);
+        }
+
+        for (int w = 0; w < rules.words; w++) {
+            long free = nearBits[w] & ~(xBits[w] | oBits[w]);
+            while (free != 0) {
+                moves[count++] = (w << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the empty cells where a player would complete a line into a buffer, in ascending order.
+     * These are the empty cells of the open lines that hold k - 1 icons of the player. When the player has
+     * no such lines, which the board counts as it goes, it returns at once.
+     *
+     * @param icon The player, {@link Icon#X} or {@link Icon#O}.
+     * @param cells The buffer, at least {@link #getEmptyCells()} long.
+     * @return The number of cells.
+     */
+    public int getThreats(Icon icon, int[] cells) {
+        boolean x = icon == Icon.X;
+        if ((x ? xOpen : oOpen)[rules.k - 1] == 0) return 0;
+
+        int[] counts = x ? xLines : oLines;
+        int[] others = x ? oLines : xLines;
+        int count = 0;
+        for (int line = 0; line < counts.length; line++) {
+            if (counts[line] != rules.k - 1 || others[line] != 0) continue;
+
+            for (int cell : rules.cellsOf(line)) {
+                if (get(cell) != Icon.NONE) continue;
+
+                // Insert in order, skipping cells that complete several lines
+                int i = count;
+                while (i > 0 && cells[i - 1] > cell) i--;
+                if (i > 0 && cells[i - 1] == cell) break;
+                System.arraycopy(cells, i, cells, i + 1, count - i);
+                cells[i] = cell;
+                count++;
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of empty cells on the board.
+     *
+     * @return The number of empty cells.
+     */
+    public int getEmptyCells() {
+        return empty;
+    }
+
+    /**
+     * Returns the cell index of a position, the cells are numbered row by row.
+     *
+     * @param position The position to convert.
+     * @return The index of the cell.
+     */
+    public int index(Position position) {
+        return position.row() * rules.cols + position.col();
+    }
+
+    /**
+     * Returns the position of a cell index. Positions are shared between boards with the same rules.
+     *
+     * @param index The index of the cell.
+     * @return The position of the cell.
+     */
+    public Position position(int index) {
+        return rules.position(index);
+    }
+
+    /**
+     * Returns the rules of the game played on this board.
+     *
+     * @return The rules of the board.
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
     /**
      * Creates a 2D array of {@link Icon} objects representing the raw data of the game board.
      *
      * @return A 2D array containing the raw data of the board.
      */
     public Icon[][] getData() {
-        return copyData(board);
+        Icon[][] data = new Icon[rules.rows][rules.cols];
+        for (int i = 0; i < rules.rows; i++)
+            for (int j = 0; j < rules.cols; j++)
+                data[i][j] = get(i * rules.cols + j);
+        return data;
     }
 
     /**
@@ -130,7 +416,16 @@ public class Board {
      * @return A copy of the board.
      */
     public Board copy() {
-        return new Board(copyData(board));
+        return new Board(this);
+    }
+
+    /**
+     * Creates an immutable snapshot of the board, later moves on the board do not change it.
+     *
+     * @return A snapshot of the board.
+     */
+    public BoardSnapshot snapshot() {
+        return new BoardSnapshot(rules, zobrist, xBits.clone(), oBits.clone(), empty, hashes.clone());
     }
 
     /**
@@ -140,7 +435,37 @@ public class Board {
      * @return true if the player has won otherwise false.
      */
     public boolean isWinner(Icon icon) {
-        return checkRows(icon) || checkCols(icon) || checkNE(icon) || checkNW(icon);
+        if (icon == Icon.X) return xWins > 0;
+        if (icon == Icon.O) return oWins > 0;
+
+        // A line of empty cells
+        for (int line = 0; line < xLines.length; line++)
+            if (xLines[line] == 0 && oLines[line] == 0) return true;
+        return false;
+    }
+
+    /**
+     * Checks if the icon in a cell is part of a winning line, only looking at the lines through that cell.
+     *
+     * @param index The index of the cell, usually the last move.
+     * @return true if the cell is part of k in a row otherwise false.
+     */
+    public boolean isWinningMove(int index) {
+        Icon icon = get(index);
+        if (icon == Icon.NONE) return false;
+        return rules.isWin(icon == Icon.X ? xBits : oBits, index);
+    }
+
+    /**
+     * Returns the number of open lines of a player with a given number of icons.
+     * An open line holds no icons of the opponent, so the player can still complete it.
+     *
+     * @param icon The icon of the player.
+     * @param count The number of icons of the player on the line, from 0 to k.
+     * @return The number of open lines.
+     */
+    public int getOpenLines(Icon icon, int count) {
+        return icon == Icon.X ? xOpen[count] : oOpen[count];
     }
 
     /**
@@ -149,7 +474,48 @@ public class Board {
      * @return true if the board is full otherwise false.
      */
     public boolean isFull() {
-        return getPossibleMoves().isEmpty();
+        return empty == 0;
+    }
+
+    /**
+     * Returns the Zobrist hash of the board.
+     *
+     * @return The hash of the board as it is.
+     */
+    public long hash() {
+        return hashes[0];
+    }
+
+    /**
+     * Returns the Zobrist hash of the board transformed by a symmetry.
+     *
+     * @param symmetry The index of the symmetry, see {@link Zobrist#map(int, int)}.
+     * @return The hash of the transformed board.
+     */
+    public long hash(int symmetry) {
+        return hashes[symmetry];
+    }
+
+    /**
+     * Finds the symmetry whose hash is the smallest. That hash is the same for all rotations and reflections
+     * of this board, so it can be used as a canonical key.
+     *
+     * @return The index of the canonical symmetry.
+     */
+    public int canonicalSymmetry() {
+        int best = 0;
+        for (int s = 1; s < hashes.length; s++)
+            if (hashes[s] < hashes[best]) best = s;
+        return best;
+    }
+
+    /**
+     * Returns the Zobrist keys and symmetry tables used by this board.
+     *
+     * @return The Zobrist keys of the board.
+     */
+    public Zobrist getZobrist() {
+        return zobrist;
     }
 
     /**
@@ -160,94 +526,114 @@ public class Board {
     public String toString() {
         StringBuilder sb = new StringBuilder();
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                sb.append(' ').append(board[i][j]);
-                if (j < size - 1) sb.append(" |");
+        for (int i = 0; i < rules.rows; i++) {
+            for (int j = 0; j < rules.cols; j++) {
+                sb.append(' ').append(get(i * rules.cols + j));
+                if (j < rules.cols - 1) sb.append(" |");
             }
 
-            if (i < size - 1) sb.append('\n');
+            if (i < rules.rows - 1) sb.append('\n');
         }
 
         return sb.toString();
     }
 
-
     /**
-     * Returns a deep-copy of a 2D {@link Icon} array.
-     * @param data The array to copy.
-     * @return a deep-copy of a 2D {@link Icon} array.
+     * Counts an icon near the cells around it.
+     *
+     * @param index The index of the cell of the icon.
+     * @param delta 1 if the icon is put on the board, -1 if it is removed.
      */
-    private Icon[][] copyData(Icon[][] data) {
-        Icon[][] copy = new Icon[data.length][data.length];
-        for (int i = 0; i < data.length; i++)
-            System.arraycopy(data[i], 0, copy[i], 0, data.length);
-        return copy;
+    private void addNear(int index, int delta) {
+        for (int cell : rules.neighbors(index)) {
+            int before = near[cell];
+            near[cell] = before + delta;
+            if (before == 0 || before + delta == 0) nearBits[cell >>> 6] ^= 1L << cell;
+        }
     }
 
     /**
-     * Checks if a player won horizontally.
-     * @param icon The icon of the player to check.
-     * @return true if the player has won otherwise false.
+     * Counts an icon in all lines through a cell.
+     * @param icon The icon put in the cell.
+     * @param index The index of the cell.
      */
-    private boolean checkRows(Icon icon) {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                // Break if cell does not contain player
-                if (board[i][j] != icon) break;
-                // Return true if the player has filled a row
-                if (j == size - 1) return true;
+    private void addToLines(Icon icon, int index) {
+        boolean x = icon == Icon.X;
+        int[] counts = x ? xLines : oLines;
+        int[] others = x ? oLines : xLines;
+        int[] open = x ? xOpen : oOpen;
+        int[] otherOpen = x ? oOpen : xOpen;
+        int wins = 0;
+
+        for (int line : rules.linesThrough(index)) {
+            int count = counts[line]++;
+            int other = others[line];
+            if (count + 1 == rules.k) wins++;
+
+            // The line stays open for the player and is no longer open for the opponent
+            if (other == 0) {
+                open[count]--;
+                open[count + 1]++;
             }
+            if (count == 0) otherOpen[other]--;
         }
 
-        return false;
+        if (x) xWins += wins;
+        else oWins += wins;
     }
 
     /**
-     * Checks if a player won vertically.
-     * @param icon The icon of the player to check.
-     * @return true if the player has won otherwise false.
+     * Removes an icon from the counts of all lines through a cell.
+     * @param icon The icon removed from the cell.
+     * @param index The index of the cell.
      */
-    private boolean checkCols(Icon icon) {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                // Break if cell does not contain player
-                if (board[j][i] != icon) break;
-                // Return true if the player has filled a column
-                if (j == size - 1) return true;
+    private void removeFromLines(Icon icon, int index) {
+        boolean x = icon == Icon.X;
+        int[] counts = x ? xLines : oLines;
+        int[] others = x ? oLines : xLines;
+        int[] open = x ? xOpen : oOpen;
+        int[] otherOpen = x ? oOpen : xOpen;
+        int wins = 0;
+
+        for (int line : rules.linesThrough(index)) {
+            int count = counts[line]--;
+            int other = others[line];
+            if (count == rules.k) wins++;
+
+            // The reverse of addToLines
+            if (other == 0) {
+                open[count]--;
+                open[count - 1]++;
             }
+            if (count == 1) otherOpen[other]++;
         }
 
-        return false;
+        if (x) xWins -= wins;
+        else oWins -= wins;
     }
 
     /**
-     * Checks if a player won diagonally in the northwest direction.
-     * @param icon The icon of the player to check.
-     * @return true if the player has won otherwise false.
+     * Adds or removes an icon in a cell from the hashes of all symmetries.
+     * @param icon The icon in the cell.
+     * @param index The index of the cell.
      */
-    private boolean checkNW(Icon icon) {
-        // Return false if a cell in diagonal does not contain player
-        for (int i = 0; i < size; i++) {
-            if (board[i][i] != icon) return false;
-        }
-
-        // Return true if player has filled diagonal
-        return true;
+    private void toggleHashes(Icon icon, int index) {
+        for (int s = 0; s < hashes.length; s++)
+            hashes[s] ^= zobrist.key(icon, zobrist.map(s, index));
     }
 
     /**
-     * Checks if a player won diagonally in the northeast direction.
-     * @param icon The icon of the player to check.
-     * @return true if the player has won otherwise false.
+     * Validates raw board data and returns its size.
+     * @param data The raw data off the board.
+     * @return The size of the board.
      */
-    private boolean checkNE(Icon icon) {
-        // Return false if a cell in diagonal does not contain player
-        for (int i = 0; i < size; i++) {
-            if (board[i][size - 1 - i] != icon) return false;
-        }
+    private static int validSize(Icon[][] data) {
+        int size = data.length;
+
+        // Check if data is valid
+        if (size == 0) throw new IllegalArgumentException("Data is empty.");
+        for (Icon[] row : data) if (row.length != size) throw new IllegalArgumentException("Board is not square.");
 
-        // Return true if player has filled diagonal
-        return true;
+        return size;
     }
 }
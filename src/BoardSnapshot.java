@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable view of a board, safe to hand to players that should not be able to change the game.
+ * The cells are stored as the bitboards of {@link Board}, one bit per cell and player. Playing a move with
+ * {@link #with(int, Icon)} creates a new snapshot that copies only the bitboard of the player that moved and the
+ * hashes of the symmetries and shares the other bitboard, so it costs one word per 64 cells and one per symmetry
+ * instead of a copy of the whole board with its line counts.
+ * <p>
+ * Players that need a mutable board to search on get one from {@link #toBoard()}, which copies the bitboards and
+ * hashes and counts the lines in bulk.
+ */
+public final class BoardSnapshot {
+    private final Rules rules;
+    private final Zobrist zobrist;
+    // Never changed after construction, arrays may be shared with other snapshots
+    private final long[] xBits;
+    private final long[] oBits;
+    private final int empty;
+    // The hash of every symmetry, like the hashes of a board
+    private final long[] hashes;
+
+    /**
+     * Creates a snapshot from bitboards that are not changed afterwards.
+     *
+     * @param rules The rules of the board.
+     * @param zobrist The Zobrist keys of the rules.
+     * @param xBits The cells of X, owned by the snapshot.
+     * @param oBits The cells of O, owned by the snapshot.
+     * @param empty The number of empty cells.
+     * @param hashes The Zobrist hash of the cells under every symmetry, owned by the snapshot.
+     */
+    BoardSnapshot(Rules rules, Zobrist zobrist, long[] xBits, long[] oBits, int empty, long[] hashes) {
+        this.rules = rules;
+        this.zobrist = zobrist;
+        this.xBits = xBits;
+        this.oBits = oBits;
+        this.empty = empty;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Returns the snapshot of an empty board.
+     *
+     * @param rules The rules of the board.
+     * @return The empty snapshot.
+     */
+    public static BoardSnapshot empty(Rules rules) {
+        Zobrist zobrist = Zobrist.of(rules);
+        return new BoardSnapshot(rules, zobrist, new long[rules.words], new long[rules.words], rules.cells,
+                new long[zobrist.symmetries]);
+    }
+
+    /**
+     * Returns a snapshot with one more icon on the board, this snapshot does not change.
+     *
+     * @param index The index of the cell, see {@link #index(Position)}.
+     * @param icon The icon to set, {@link Icon#X} or {@link Icon#O}.
+     * @return The new snapshot.
+     * @throws IllegalArgumentException when the cell is not empty or the icon is {@link Icon#NONE}.
+     */
+    public BoardSnapshot with(int index, Icon icon) {
+        if (icon == Icon.NONE) throw new IllegalArgumentException("A move needs an icon");
+        if (get(index) != Icon.NONE) throw new IllegalArgumentException("Cell is not empty");
+
+        // Copy only the bits of the player that moved
+        boolean x = icon == Icon.X;
+        long[] bits = (x ? xBits : oBits).clone();
+        bits[index >>> 6] |= 1L << index;
+        long[] moved = new long[hashes.length];
+        for (int s = 0; s < hashes.length; s++) moved[s] = hashes[s] ^ zobrist.key(icon, zobrist.map(s, index));
+        return new BoardSnapshot(rules, zobrist, x ? bits : xBits, x ? oBits : bits, empty - 1, moved);
+    }
+
+    /**
+     * Returns a snapshot with one more icon on the board, this snapshot does not change.
+     *
+     * @param position The position of the move.
+     * @param icon The icon to set, {@link Icon#X} or {@link Icon#O}.
+     * @return The new snapshot.
+     * @throws IllegalArgumentException when the cell is not empty or the icon is {@link Icon#NONE}.
+     */
+    public BoardSnapshot with(Position position, Icon icon) {
+        return with(index(position), icon);
+    }
+
+    /**
+     * Creates a mutable board with the same icons. The bitboards and hashes are copied and the line counts computed
+     * in bulk, so the cost depends on the number of words and lines, not on the number of icons.
+     *
+     * @return A new board, owned by the caller.
+     */
+    public Board toBoard() {
+        return new Board(rules, zobrist, xBits, oBits, hashes, empty);
+    }
+
+    /**
+     * Returns the icon in a cell.
+     *
+     * @param index The index of the cell, see {@link #index(Position)}.
+     * @return The icon in the cell, {@link Icon#NONE} if it is empty.
+     */
+    public Icon get(int index) {
+        if ((xBits[index >>> 6] & (1L << index)) != 0) return Icon.X;
+        if ((oBits[index >>> 6] & (1L << index)) != 0) return Icon.O;
+        return Icon.NONE;
+    }
+
+    /**
+     * Returns the icon at a position.
+     *
+     * @param position The position of the cell.
+     * @return The icon in the cell, {@link Icon#NONE} if it is empty.
+     */
+    public Icon get(Position position) {
+        return get(index(position));
+    }
+
+    /**
+     * Checks if a specific move is allowed.
+     *
+     * @param move The position of the move.
+     * @return true if the move is allowed otherwise false.
+     */
+    public boolean isAllowed(Position move) {
+        if (move.row() < 0 || move.row() >= rules.rows || move.col() < 0 || move.col() >= rules.cols) return false;
+        return get(move) == Icon.NONE;
+    }
+
+    /**
+     * Creates a List with all the moves that are still available.
+     *
+     * @return A List of available move positions.
+     */
+    public List<Position> getPossibleMoves() {
+        int[] moves = new int[empty];
+        int count = getPossibleMoves(moves);
+        List<Position> possibleMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) possibleMoves.add(rules.position(moves[i]));
+        return possibleMoves;
+    }
+
+    /**
+     * Writes the cell indexes of all available moves into a buffer, in the same order as {@link #getPossibleMoves()}.
+     *
+     * @param moves The buffer, at least {@link #getEmptyCells()} long.
+     * @return The number of available moves.
+     */
+    public int getPossibleMoves(int[] moves) {
+        int count = 0;
+        for (int w = 0; w < rules.words; w++) {
+            long free = ~(xBits[w] | oBits[w]) & rules.full(w);
+            while (free != 0) {
+                moves[count++] = (w << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of empty cells on the board.
+     *
+     * @return The number of empty cells.
+     */
+    public int getEmptyCells() {
+        return empty;
+    }
+
+    /**
+     * Checks if the board is full.
+     *
+     * @return true if there are no empty cells otherwise false.
+     */
+    public boolean isFull() {
+        return empty == 0;
+    }
+
+    /**
+     * Returns the cell index of a position, the cells are numbered row by row.
+     *
+     * @param position The position to convert.
+     * @return The index of the cell.
+     */
+    public int index(Position position) {
+        return position.row() * rules.cols + position.col();
+    }
+
+    /**
+     * Returns the position of a cell index. Positions are shared between boards with the same rules.
+     *
+     * @param index The index of the cell.
+     * @return The position of the cell.
+     */
+    public Position position(int index) {
+        return rules.position(index);
+    }
+
+    /**
+     * Returns the rules of the game played on this board.
+     *
+     * @return The rules of the board.
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the Zobrist hash of the board, the same as {@link Board#hash()} of a board with the same icons.
+     *
+     * @return The hash of the board.
+     */
+    public long hash() {
+        return hashes[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BoardSnapshot other)) return false;
+        return rules == other.rules && hashes[0] == other.hashes[0]
+                && Arrays.equals(xBits, other.xBits) && Arrays.equals(oBits, other.oBits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hashes[0]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < rules.rows; i++) {
+            for (int j = 0; j < rules.cols; j++) {
+                sb.append(' ').append(get(i * rules.cols + j));
+                if (j < rules.cols - 1) sb.append(" |");
+            }
+
+            if (i < rules.rows - 1) sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+}
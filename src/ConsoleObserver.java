@@ -0,0 +1,49 @@
+import java.io.PrintStream;
+
+/**
+ * Prints a game to a console: the board before every turn and the outcome at the end.
+ * The board is only formatted when this observer is attached to a game, and each event is printed with one write.
+ */
+public class ConsoleObserver implements GameObserver {
+    private final PrintStream out;
+    // Reused for every event, so printing does not build a new buffer per move
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Creates an observer that prints to {@link System#out}.
+     */
+    public ConsoleObserver() {
+        this(System.out);
+    }
+
+    /**
+     * Creates an observer that prints to a stream.
+     *
+     * @param out The stream to print to.
+     */
+    public ConsoleObserver(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void turnStarted(BoardSnapshot board, Icon player) {
+        print(board, player + "'s turn");
+    }
+
+    @Override
+    public void gameOver(BoardSnapshot board, GameResult result) {
+        print(board, result.isDraw() ? "Its a draw" : result.winner() + " won!");
+    }
+
+    /**
+     * Prints a message along with the board.
+     *
+     * @param board The board to show.
+     * @param msg The message to be displayed.
+     */
+    private void print(BoardSnapshot board, String msg) {
+        text.setLength(0);
+        text.append('\n').append(board).append("\n\n").append(msg);
+        out.println(text);
+    }
+}
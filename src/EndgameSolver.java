@@ -0,0 +1,349 @@
+import java.util.Arrays;
+
+/**
+ * Solves the end of a game exactly: a negamax search with alpha-beta pruning down to the end of the game, for
+ * positions with few empty cells left. It finds the quickest win, or the slowest loss, of every position.
+ * <p>
+ * The search does not use a {@link Board}. It plays on two bitboards, a list of the empty cells and one Zobrist hash
+ * per symmetry, all primitive arrays changed in place. A move is checked for a win only on the lines through it.
+ * Immediate wins are played at once, and a single threat of the opponent is blocked without searching other moves.
+ * <p>
+ * Scores do not depend on a search depth, so every result in the transposition table stays exact for as long as
+ * the table holds it: the positions of the next move were mostly solved by the last one. The table is keyed by the
+ * symmetry-canonical hash, so symmetric positions are solved once. Each bucket has two entries, one that keeps the
+ * position with the most empty cells and one that is always replaced.
+ * A solver is not thread-safe.
+ */
+public class EndgameSolver {
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int EXACT = 1;
+    private static final int LOWER = 2;
+    private static final int UPPER = 3;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private Rules rules;
+    private Zobrist zobrist;
+    // The Zobrist keys of each symmetry, symmetry * cells + cell
+    private long[] xKeys;
+    private long[] oKeys;
+    private long[] xBits;
+    private long[] oBits;
+    private long[] hashes;
+    // The empty cells, the search swaps the cell it plays to the end of the list
+    private int[] empty;
+    private int infinity;
+    private int bestMove;
+    private long nodes;
+
+    /**
+     * The solution of a position.
+     *
+     * @param score The score for the player to move: the number of empty cells before the winning move, negative
+     *              when the opponent wins and 0 for a draw.
+     * @param move The best move: the quickest win, a draw, or the slowest loss.
+     * @param nodes The number of positions the solver searched.
+     */
+    public record Result(int score, Position move, long nodes) {
+        /**
+         * Returns the outcome of the position with perfect play.
+         *
+         * @return The outcome for the player to move.
+         */
+        public Tablebase.Outcome outcome() {
+            return score > 0 ? Tablebase.Outcome.WIN : score < 0 ? Tablebase.Outcome.LOSS : Tablebase.Outcome.DRAW;
+        }
+    }
+
+    /**
+     * Creates a new instance of the {@link EndgameSolver} class.
+     *
+     * @param megabytes The maximum amount of memory the table may use, rounded down to a power of two entries.
+     */
+    public EndgameSolver(int megabytes) {
+        long entries = Math.max(2, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.mask = capacity - 2;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Solves a position. Results stay in the table, so solving the positions that follow a solved one is cheap.
+     *
+     * @param board The position, it is not changed. The game must not be over.
+     * @param player The player to move.
+     * @return The score of the position and the best move.
+     * @throws IllegalArgumentException when the game is over.
+     */
+    public Result solve(Board board, Icon player) {
+        if (board.isWinner(Icon.X) || board.isWinner(Icon.O) || board.isFull())
+            throw new IllegalArgumentException("The game is over");
+        load(board);
+
+        nodes = 0;
+        int count = board.getEmptyCells();
+        int score = search(count, player, -infinity, infinity);
+        return new Result(score, board.position(bestMove), nodes);
+    }
+
+    /**
+     * Copies a position into the arrays of the search, and resets the table when the rules changed.
+     *
+     * @param board The position.
+     */
+    private void load(Board board) {
+        if (board.getRules() != rules) {
+            rules = board.getRules();
+            zobrist = board.getZobrist();
+            int cells = rules.cells;
+            xKeys = new long[zobrist.symmetries * cells];
+            oKeys = new long[zobrist.symmetries * cells];
+            for (int s = 0; s < zobrist.symmetries; s++) {
+                for (int cell = 0; cell < cells; cell++) {
+                    xKeys[s * cells + cell] = zobrist.key(Icon.X, zobrist.map(s, cell));
+                    oKeys[s * cells + cell] = zobrist.key(Icon.O, zobrist.map(s, cell));
+                }
+            }
+            xBits = new long[rules.words];
+            oBits = new long[rules.words];
+            hashes = new long[zobrist.symmetries];
+            empty = new int[cells];
+            infinity = cells + 1;
+            clear();
+        }
+
+        Arrays.fill(xBits, 0);
+        Arrays.fill(oBits, 0);
+        Arrays.fill(hashes, 0);
+        for (int cell = 0; cell < rules.cells; cell++) {
+            Icon icon = board.get(cell);
+            if (icon != Icon.NONE) play(cell, icon);
+        }
+        board.getPossibleMoves(empty);
+    }
+
+    /**
+     * Searches a position to the end of the game. The best move is stored in {@link #bestMove}, the root call
+     * writes it last.
+     *
+     * @param count The number of empty cells, the first count cells of {@link #empty}.
+     * @param player The player to move.
+     * @param alpha The score the player already has.
+     * @param beta The score the opponent already has.
+     * @return The score for the player to move, exact when it lies between alpha and beta, otherwise a bound.
+     */
+    private int search(int count, Icon player, int alpha, int beta) {
+        nodes++;
+        long[] own = player == Icon.X ? xBits : oBits;
+        long[] other = player == Icon.X ? oBits : xBits;
+
+        // A win now is the quickest win
+        for (int i = 0; i < count; i++) {
+            if (wins(own, empty[i])) {
+                bestMove = empty[i];
+                return count;
+            }
+        }
+        if (count == 1) {
+            bestMove = empty[0];
+            return 0;
+        }
+
+        // A threat of the opponent has to be blocked, two can not be
+        int threat = -1;
+        for (int i = 0; i < count; i++) {
+            if (!wins(other, empty[i])) continue;
+            if (threat >= 0) {
+                bestMove = empty[threat];
+                return -(count - 1);
+            }
+            threat = i;
+        }
+        if (threat >= 0) {
+            int score = -move(threat, count, player, -beta, -alpha);
+            bestMove = empty[threat];
+            return score;
+        }
+
+        int symmetry = canonicalSymmetry();
+        long key = hashes[symmetry] ^ (player == Icon.O ? Zobrist.SIDE : 0);
+        int index = (int) (key ^ key >>> 32) & mask;
+        int first = -1;
+        int slot = keys[index] == key ? index : keys[index + 1] == key ? index + 1 : -1;
+        if (slot >= 0) {
+            long entry = data[slot];
+            int score = score(entry);
+            int bound = bound(entry);
+            int move = zobrist.unmap(symmetry, move(entry));
+            if (bound == EXACT || bound == LOWER && score >= beta || bound == UPPER && score <= alpha) {
+                bestMove = move;
+                return score;
+            }
+            first = move;
+        }
+
+        int originalAlpha = alpha;
+        int best = -infinity;
+        int bestCell = -1;
+        for (int n = -1; n < count; n++) {
+            // The move of the table first, then the other moves in order
+            int i = n < 0 ? indexOf(first, count) : n;
+            if (i < 0 || n >= 0 && empty[i] == first) continue;
+
+            int cell = empty[i];
+            int score = -move(i, count, player, -beta, -alpha);
+            if (score > best) {
+                best = score;
+                bestCell = cell;
+            }
+            if (best > alpha) alpha = best;
+            if (alpha >= beta) break;
+        }
+
+        int bound = best <= originalAlpha ? UPPER : best >= beta ? LOWER : EXACT;
+        store(index, key, best, bound, zobrist.map(symmetry, bestCell), count);
+        bestMove = bestCell;
+        return best;
+    }
+
+    /**
+     * Plays one of the empty cells, searches the position after it and takes the move back.
+     *
+     * @param i The index of the cell in {@link #empty}.
+     * @param count The number of empty cells before the move.
+     * @param player The player that moves.
+     * @param alpha The score the opponent already has.
+     * @param beta The score the player already has.
+     * @return The score of the position after the move, for the opponent.
+     */
+    private int move(int i, int count, Icon player, int alpha, int beta) {
+        int cell = empty[i];
+        empty[i] = empty[count - 1];
+        empty[count - 1] = cell;
+        play(cell, player);
+
+        int score = search(count - 1, player.opponent(), alpha, beta);
+
+        play(cell, player);
+        empty[count - 1] = empty[i];
+        empty[i] = cell;
+        return score;
+    }
+
+    /**
+     * Adds an icon to a cell, or removes it again when it is there.
+     *
+     * @param cell The index of the cell.
+     * @param icon The icon.
+     */
+    private void play(int cell, Icon icon) {
+        long[] bits = icon == Icon.X ? xBits : oBits;
+        long[] symmetric = icon == Icon.X ? xKeys : oKeys;
+        bits[cell >>> 6] ^= 1L << cell;
+        for (int s = 0; s < hashes.length; s++) hashes[s] ^= symmetric[s * rules.cells + cell];
+    }
+
+    /**
+     * Checks whether an icon in an empty cell would complete a line.
+     *
+     * @param bits The bitboard of the player.
+     * @param cell The index of the empty cell.
+     * @return true if the move wins.
+     */
+    private boolean wins(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+        boolean win = rules.isWin(bits, cell);
+        bits[cell >>> 6] &= ~(1L << cell);
+        return win;
+    }
+
+    /**
+     * Returns the symmetry with the smallest hash, the one the table is keyed by.
+     *
+     * @return The index of the symmetry.
+     */
+    private int canonicalSymmetry() {
+        int symmetry = 0;
+        for (int s = 1; s < hashes.length; s++) if (hashes[s] < hashes[symmetry]) symmetry = s;
+        return symmetry;
+    }
+
+    /**
+     * Finds a cell among the empty cells.
+     *
+     * @param cell The index of the cell, or -1.
+     * @param count The number of empty cells.
+     * @return The index of the cell in {@link #empty}, or -1 if it is not empty.
+     */
+    private int indexOf(int cell, int count) {
+        for (int i = 0; i < count; i++) if (empty[i] == cell) return i;
+        return -1;
+    }
+
+    /**
+     * Stores a result in a bucket. The first entry keeps the position with the most empty cells, the one that took
+     * the most work, the second entry takes everything else.
+     *
+     * @param index The index of the bucket.
+     * @param key The key of the position.
+     * @param score The score.
+     * @param bound Whether the score is exact or a bound.
+     * @param move The best move, in the canonical orientation.
+     * @param count The number of empty cells.
+     */
+    private void store(int index, long key, int score, int bound, int move, int count) {
+        int slot = keys[index] == key || keys[index] == 0 || count(data[index]) <= count ? index : index + 1;
+        keys[slot] = key;
+        data[slot] = (long) score << 32 | (long) count << 18 | (long) bound << 16 | move;
+    }
+
+    /**
+     * Decodes the score of a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The score.
+     */
+    private static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * Decodes the number of empty cells of a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The number of empty cells.
+     */
+    private static int count(long entry) {
+        return (int) (entry >>> 18) & 0x3FFF;
+    }
+
+    /**
+     * Decodes the bound of a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return Whether the score is exact or a bound.
+     */
+    private static int bound(long entry) {
+        return (int) (entry >>> 16) & 3;
+    }
+
+    /**
+     * Decodes the best move of a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The best move, in the canonical orientation.
+     */
+    private static int move(long entry) {
+        return (int) entry & 0xFFFF;
+    }
+}
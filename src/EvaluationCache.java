@@ -0,0 +1,313 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A process-wide cache of searched positions: the score, best move and depth of a position, by a 64-bit key.
+ * Where a {@link TranspositionTable} belongs to one search tree, this cache keeps the results of whole searches so that
+ * players in other games, on other threads, do not search the same positions again.
+ * <p>
+ * The cache is split into stripes, each with its own lock, so threads rarely wait for each other. Every stripe holds
+ * a fixed number of entries and evicts with the CLOCK algorithm: a hit marks an entry as used, and the clock hand
+ * skips used entries once, clearing the mark, before it evicts one that was not used since its last turn.
+ * Entries are packed in a long, like the entries of the transposition table. Next to the packed entry the cache
+ * keeps every move that shares the best score, so a player with a random tiebreaker can still choose between them.
+ */
+public class EvaluationCache {
+    /** The largest search depth an entry can hold. */
+    public static final int MAX_DEPTH = 255;
+
+    private static final int STRIPES = 16;
+    // The arrays of an entry take 21 bytes, its best moves about 24 and its slot in the index about 80
+    private static final int ENTRY_BYTES = 128;
+    private static final int DEFAULT_MEGABYTES = 16;
+    private static volatile EvaluationCache shared;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A part of the cache with its own lock.
+     */
+    private static final class Stripe {
+        final Map<Long, Integer> index;
+        final long[] keys;
+        final long[] data;
+        // The cells of all best moves of an entry
+        final int[][] moves;
+        final boolean[] used;
+        int size;
+        int hand;
+
+        /**
+         * Creates an empty stripe.
+         *
+         * @param capacity The number of entries the stripe holds.
+         */
+        Stripe(int capacity) {
+            index = new HashMap<>(capacity * 4 / 3 + 1);
+            keys = new long[capacity];
+            data = new long[capacity];
+            moves = new int[capacity][];
+            used = new boolean[capacity];
+        }
+    }
+
+    /**
+     * Creates a new instance of the {@link EvaluationCache} class.
+     *
+     * @param megabytes The approximate amount of memory the cache may use.
+     */
+    public EvaluationCache(int megabytes) {
+        int capacity = Math.max(1, (int) Math.min(Integer.MAX_VALUE, (long) megabytes * 1024 * 1024 / ENTRY_BYTES / STRIPES));
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(capacity);
+    }
+
+    /**
+     * Returns the cache shared by the whole process, creating it with 16 MB on first use.
+     *
+     * @return The shared cache.
+     */
+    public static EvaluationCache shared() {
+        EvaluationCache cache = shared;
+        if (cache != null) return cache;
+
+        synchronized (EvaluationCache.class) {
+            if (shared == null) shared = new EvaluationCache(DEFAULT_MEGABYTES);
+            return shared;
+        }
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The key of the position.
+     * @return The packed entry, or 0 if the position is not in the cache.
+     */
+    public long probe(long key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Integer slot = stripe.index.get(key);
+            if (slot == null) {
+                misses.increment();
+                return 0;
+            }
+
+            stripe.used[slot] = true;
+            hits.increment();
+            return stripe.data[slot];
+        }
+    }
+
+    /**
+     * Looks up the best moves of a position.
+     *
+     * @param key The key of the position.
+     * @return The cells of all moves with the best score, in the orientation the key was made in,
+     *         or null if the position is not in the cache. The array must not be changed.
+     */
+    public int[] probeMoves(long key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Integer slot = stripe.index.get(key);
+            if (slot == null) {
+                misses.increment();
+                return null;
+            }
+
+            stripe.used[slot] = true;
+            hits.increment();
+            return stripe.moves[slot];
+        }
+    }
+
+    /**
+     * Stores the result of a search, replacing the entry of the same position or evicting another one when full.
+     *
+     * @param key The key of the position.
+     * @param depth The depth of the search, from 0 to 255.
+     * @param score The score of the best move.
+     * @param move The cell of the best move, in the orientation the key was made in.
+     * @throws IllegalArgumentException when the depth does not fit in an entry.
+     */
+    public void store(long key, int depth, int score, int move) {
+        store(key, depth, score, new int[] {move});
+    }
+
+    /**
+     * Stores the result of a search with all its best moves, replacing the entry of the same position or evicting
+     * another one when full. The packed entry holds the first move.
+     *
+     * @param key The key of the position.
+     * @param depth The depth of the search, from 0 to 255.
+     * @param score The best score.
+     * @param moves The cells of all moves with the best score, in the orientation the key was made in.
+     *              The cache keeps the array, it must not be changed afterwards.
+     * @throws IllegalArgumentException when the depth does not fit in an entry or there are no moves.
+     */
+    public void store(long key, int depth, int score, int[] moves) {
+        if (depth < 0 || depth > MAX_DEPTH) throw new IllegalArgumentException("Depth " + depth + " does not fit in an entry");
+        if (moves.length == 0) throw new IllegalArgumentException("No best move");
+
+        long entry = (long) score << 32 | (long) (moves[0] + 1) << 16 | (long) depth << 8 | 1;
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Integer slot = stripe.index.get(key);
+            if (slot == null) {
+                slot = stripe.size < stripe.keys.length ? stripe.size++ : evict(stripe);
+                stripe.keys[slot] = key;
+                stripe.index.put(key, slot);
+            }
+            stripe.data[slot] = entry;
+            stripe.moves[slot] = moves;
+            stripe.used[slot] = false;
+        }
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.index.clear();
+                Arrays.fill(stripe.moves, null);
+                stripe.size = 0;
+                stripe.hand = 0;
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Returns the number of positions in the cache.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of positions the cache can hold.
+     *
+     * @return The number of entries.
+     */
+    public int capacity() {
+        return stripes[0].keys.length * STRIPES;
+    }
+
+    /**
+     * Returns the number of lookups that found their position.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find their position.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries that were removed to make room for others.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the part of the lookups that found their position.
+     *
+     * @return The hit ratio, from 0 to 1.
+     */
+    public double getHitRatio() {
+        long hits = getHits();
+        return (double) hits / Math.max(1, hits + getMisses());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hits), %d evictions",
+                size(), capacity(), getHits(), getMisses(), 100 * getHitRatio(), getEvictions());
+    }
+
+    /**
+     * Decodes the score of an entry.
+     *
+     * @param entry The packed entry.
+     * @return The score of the best move.
+     */
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * Decodes the best move of an entry.
+     *
+     * @param entry The packed entry.
+     * @return The cell of the best move.
+     */
+    public static int move(long entry) {
+        return (int) ((entry >>> 16) & 0xFFFF) - 1;
+    }
+
+    /**
+     * Decodes the depth of an entry.
+     *
+     * @param entry The packed entry.
+     * @return The depth of the search.
+     */
+    public static int depth(long entry) {
+        return (int) ((entry >>> 8) & 0xFF);
+    }
+
+    /**
+     * Picks the stripe of a key.
+     *
+     * @param key The key of a position.
+     * @return The stripe the key belongs to.
+     */
+    private Stripe stripe(long key) {
+        // The high bits, the low bits already pick the bucket in the index
+        return stripes[(int) (key >>> 60) & (STRIPES - 1)];
+    }
+
+    /**
+     * Moves the clock hand to an entry that was not used since the last turn and removes it.
+     *
+     * @param stripe The full stripe, its lock must be held.
+     * @return The free slot.
+     */
+    private int evict(Stripe stripe) {
+        while (stripe.used[stripe.hand]) {
+            stripe.used[stripe.hand] = false;
+            stripe.hand = (stripe.hand + 1) % stripe.keys.length;
+        }
+
+        int slot = stripe.hand;
+        stripe.hand = (slot + 1) % stripe.keys.length;
+        stripe.index.remove(stripe.keys[slot]);
+        evictions.increment();
+        return slot;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Scores a position that the search does not explore any further because its depth is used up.
+ * An evaluator lets a depth-limited search tell good positions from bad ones on boards too big to search to the end.
+ */
+public interface Evaluator {
+    /**
+     * Scores every position as 0, the search then only recognises wins and losses it can see.
+     */
+    Evaluator NONE = new Evaluator() {
+        @Override
+        public int evaluate(Board board, Icon player) {
+            return 0;
+        }
+
+        @Override
+        public int winScore() {
+            return 10;
+        }
+    };
+
+    /**
+     * Scores a position that has no winner yet.
+     *
+     * @param board The board to score.
+     * @param player The player to score the board for.
+     * @return The score, positive if the position is good for the player, smaller in size than {@link #winScore()}.
+     */
+    int evaluate(Board board, Icon player);
+
+    /**
+     * Returns the base score of a win. The search adds the remaining depth, so quicker wins score higher.
+     *
+     * @return The base score of a win.
+     */
+    int winScore();
+}
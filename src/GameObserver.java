@@ -0,0 +1,36 @@
+/**
+ * Receives the events of a game played by a {@link GameRunner}, for example to show it on a console.
+ * The observer is called on the thread that plays the game, between the moves, so it should be quick.
+ * All methods do nothing by default, an observer only overrides the events it needs.
+ */
+public interface GameObserver {
+    /**
+     * Ignores all events. A game with this observer formats and prints nothing.
+     */
+    GameObserver NONE = new GameObserver() { };
+
+    /**
+     * Called before a player is asked for a move.
+     *
+     * @param board The board the player moves on.
+     * @param player The icon of the player to move.
+     */
+    default void turnStarted(BoardSnapshot board, Icon player) { }
+
+    /**
+     * Called after a legal move was played.
+     *
+     * @param board The board after the move.
+     * @param player The icon of the player that moved.
+     * @param move The move.
+     */
+    default void moveMade(BoardSnapshot board, Icon player, Position move) { }
+
+    /**
+     * Called when the game is over.
+     *
+     * @param board The final board, without the illegal move if the game ended with one.
+     * @param result The outcome of the game.
+     */
+    default void gameOver(BoardSnapshot board, GameResult result) { }
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the games of a file written by {@link GameRecordWriter}, one game at a time.
+ * The file is memory-mapped and read in place, so files with millions of games can be replayed without keeping them
+ * in memory. Files larger than a mapping can hold are mapped one window after the other.
+ * <p>
+ * Typical use: call {@link #next()} until it returns false, and {@link #replay(Board, MoveVisitor)} each game.
+ */
+public class GameRecordReader implements AutoCloseable {
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final Rules rules;
+    private MappedByteBuffer window;
+    // The offset of the window in the file
+    private long base;
+    private int moveCount;
+    private int result;
+    private int movesStart = -1;
+
+    /**
+     * Receives the moves of a replayed game.
+     */
+    @FunctionalInterface
+    public interface MoveVisitor {
+        /**
+         * Called after every move of a replayed game.
+         *
+         * @param board The board with the move on it, it must not be changed.
+         * @param ply The number of the move, from 0.
+         * @param cell The index of the cell of the move.
+         * @param icon The icon of the player that moved.
+         */
+        void visit(Board board, int ply, int cell, Icon icon);
+    }
+
+    /**
+     * Creates a new instance of the {@link GameRecordReader} class.
+     *
+     * @param channel The opened file.
+     * @throws IOException when the file can not be read or is not a game-record file.
+     */
+    private GameRecordReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        map(0);
+        if (window.remaining() < 5 || window.getInt() != GameRecordWriter.MAGIC
+                || window.get() != GameRecordWriter.VERSION)
+            throw new IOException("Not a game-record file");
+        rules = Rules.of(getVarint(), getVarint(), getVarint());
+    }
+
+    /**
+     * Opens a game-record file.
+     *
+     * @param path The file to read.
+     * @return The reader, positioned before the first game.
+     * @throws IOException when the file can not be read or is not a game-record file.
+     */
+    public static GameRecordReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new GameRecordReader(channel);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the rules of the games in the file.
+     *
+     * @return The rules.
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Moves to the next game, skipping the moves of the current one if they were not replayed.
+     *
+     * @return true if there is a next game, false at the end of the file.
+     * @throws IOException when the file can not be read.
+     */
+    public boolean next() throws IOException {
+        if (movesStart >= 0) skipMoves();
+
+        // A game header takes at most 6 bytes, a whole game at most 5 bytes per move more
+        if (!ensure(6 + 5 * rules.cells)) return false;
+        moveCount = getVarint();
+        result = window.get();
+        movesStart = window.position();
+        return true;
+    }
+
+    /**
+     * Returns the number of stored moves of the current game, without the illegal move of a forfeit.
+     *
+     * @return The number of moves.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Returns the winner of the current game.
+     *
+     * @return The icon of the winner, or {@link Icon#NONE} for a draw.
+     */
+    public Icon getWinner() {
+        return switch (result & 3) {
+            case 1 -> Icon.X;
+            case 2 -> Icon.O;
+            default -> Icon.NONE;
+        };
+    }
+
+    /**
+     * Checks if the current game ended with an illegal move.
+     *
+     * @return true if the loser made an illegal move otherwise false.
+     */
+    public boolean isForfeit() {
+        return (result & GameRecordWriter.FORFEIT) != 0;
+    }
+
+    /**
+     * Plays the moves of the current game on a board, X first.
+     *
+     * @param board An empty board with the rules of the file.
+     * @param visitor Called after every move, or null.
+     */
+    public void replay(Board board, MoveVisitor visitor) {
+        window.position(movesStart);
+        Icon icon = Icon.X;
+        for (int ply = 0; ply < moveCount; ply++) {
+            int cell = getVarint();
+            board.set(cell, icon);
+            if (visitor != null) visitor.visit(board, ply, cell, icon);
+            icon = icon.opponent();
+        }
+        movesStart = -1;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException when the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Skips the moves of the current game.
+     */
+    private void skipMoves() {
+        window.position(movesStart);
+        for (int i = 0; i < moveCount; i++) getVarint();
+        movesStart = -1;
+    }
+
+    /**
+     * Makes sure the window holds the next bytes of the file, moving it forward when needed.
+     *
+     * @param bytes The number of bytes that should be in the window.
+     * @return false if the end of the file is reached otherwise true.
+     * @throws IOException when the file can not be read.
+     */
+    private boolean ensure(int bytes) throws IOException {
+        long offset = base + window.position();
+        if (offset >= channel.size()) return false;
+        if (window.remaining() < bytes && base + window.limit() < channel.size()) map(offset);
+        return true;
+    }
+
+    /**
+     * Maps a window of the file.
+     *
+     * @param offset The offset in the file the window starts at.
+     * @throws IOException when the file can not be mapped.
+     */
+    private void map(long offset) throws IOException {
+        long size = Math.min(WINDOW_BYTES, channel.size() - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        base = offset;
+    }
+
+    /**
+     * Reads a varint from the window.
+     *
+     * @return The number.
+     */
+    private int getVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = window.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends games to a binary game-record file, to be read back with {@link GameRecordReader}.
+ * <p>
+ * The file starts with a header: the magic number {@code TTTR}, a version byte and the rows, columns and k of the
+ * rules. Every game follows as the number of moves, a result byte and the cell index of every move. Numbers are
+ * varints: 7 bits per byte, low bits first, the high bit set on every byte but the last. On a board of up to
+ * 128 cells every move takes a single byte. The result byte holds the winner in bits 0-1 (0 draw, 1 X, 2 O),
+ * and bit 2 is set when the game ended with an illegal move, which is not stored.
+ * <p>
+ * Writes are buffered and the writer is thread-safe, so one writer can record the games of many threads.
+ */
+public class GameRecordWriter implements AutoCloseable {
+    static final int MAGIC = 0x54545452;
+    static final int VERSION = 1;
+    static final int FORFEIT = 4;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Rules rules;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long games;
+
+    /**
+     * Opens a record file for appending, writing the header if the file is new or empty.
+     *
+     * @param path The file to append to.
+     * @param rules The rules of the recorded games.
+     * @throws IOException when the file can not be opened or holds games with other rules.
+     */
+    public GameRecordWriter(Path path, Rules rules) throws IOException {
+        this.rules = rules;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).put((byte) VERSION);
+            putVarint(rules.rows);
+            putVarint(rules.cols);
+            putVarint(rules.k);
+        }
+        else {
+            Rules existing;
+            try (GameRecordReader reader = GameRecordReader.open(path)) {
+                existing = reader.getRules();
+            }
+            catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if (existing != rules) {
+                channel.close();
+                throw new IOException(path + " holds games of " + existing + ", not " + rules);
+            }
+        }
+    }
+
+    /**
+     * Appends a game.
+     *
+     * @param result The game to record, played with the rules of this writer.
+     * @throws IOException when the buffer can not be written to the file.
+     */
+    public synchronized void write(GameResult result) throws IOException {
+        List<Position> moves = result.moves();
+        // The illegal move of a forfeit may not even be on the board
+        int count = result.forfeit() ? moves.size() - 1 : moves.size();
+
+        // A varint takes at most 5 bytes
+        if (buffer.remaining() < 5 * (count + 2)) flush();
+        if (buffer.remaining() < 5 * (count + 2)) throw new IOException("Game is too long to record");
+
+        putVarint(count);
+        int winner = result.winner() == Icon.X ? 1 : result.winner() == Icon.O ? 2 : 0;
+        buffer.put((byte) (winner | (result.forfeit() ? FORFEIT : 0)));
+        for (int i = 0; i < count; i++) {
+            Position move = moves.get(i);
+            putVarint(move.row() * rules.cols + move.col());
+        }
+        games++;
+    }
+
+    /**
+     * Writes the buffered games to the file.
+     *
+     * @throws IOException when the file can not be written.
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Returns the number of games written by this writer.
+     *
+     * @return The number of games.
+     */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * Writes the buffered games and closes the file.
+     *
+     * @throws IOException when the file can not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Puts a non-negative number in the buffer as a varint.
+     *
+     * @param value The number to put.
+     */
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,31 @@
+import java.util.List;
+
+/**
+ * The outcome of a game played by a {@link GameRunner}.
+ *
+ * @param winner The icon of the winner, or {@link Icon#NONE} for a draw.
+ * @param forfeit true if the loser made an illegal move, the last move in the list is then that illegal move.
+ * @param moves The moves in the order they were played, X first.
+ * @param moveNanos The time each player took to choose each move, in nanoseconds, in the same order as the moves.
+ */
+public record GameResult(Icon winner, boolean forfeit, List<Position> moves, long[] moveNanos) {
+    /**
+     * Checks if the game ended in a draw.
+     *
+     * @return true if neither player won otherwise false.
+     */
+    public boolean isDraw() {
+        return winner == Icon.NONE;
+    }
+
+    /**
+     * Returns the time both players took to choose all their moves.
+     *
+     * @return The thinking time in nanoseconds.
+     */
+    public long totalNanos() {
+        long total = 0;
+        for (long nanos : moveNanos) total += nanos;
+        return total;
+    }
+}
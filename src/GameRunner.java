@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays games between two players, for self-play, strength testing and the console game.
+ * A runner prints nothing by itself, a {@link GameObserver} can follow the games, for example a {@link ConsoleObserver}.
+ * A runner can play any number of games one after the other, but it is not thread-safe: use one runner per thread.
+ */
+public class GameRunner {
+    private final Rules rules;
+    private GameObserver observer = GameObserver.NONE;
+
+    /**
+     * Creates a runner for games with the given rules.
+     *
+     * @param rules The rules of the game.
+     */
+    public GameRunner(Rules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Sets the observer that follows the games. By default no observer is called.
+     *
+     * @param observer The observer, or {@link GameObserver#NONE}.
+     */
+    public void setObserver(GameObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Plays a game on an empty board, X moves first. A player that makes an illegal move loses.
+     * Both players are told when the game is over, see {@link Player#gameOver()}.
+     *
+     * @param xPlayer The X player.
+     * @param oPlayer The O player.
+     * @return The winner, the moves and the time taken for each move.
+     */
+    public GameResult play(Player xPlayer, Player oPlayer) {
+        xPlayer.setIcon(Icon.X);
+        oPlayer.setIcon(Icon.O);
+
+        Board board = new Board(rules);
+        // The players see the snapshot, it follows the board move by move without copying it
+        BoardSnapshot snapshot = BoardSnapshot.empty(rules);
+        List<Position> moves = new ArrayList<>(rules.cells);
+        long[] moveNanos = new long[rules.cells];
+        try {
+            Player player = xPlayer;
+            while (true) {
+                observer.turnStarted(snapshot, player.getIcon());
+                long start = System.nanoTime();
+                Position move = player.getMove(snapshot);
+                moveNanos[moves.size()] = System.nanoTime() - start;
+                moves.add(move);
+
+                // Set move, if move is illegal opponent wins
+                try {
+                    board.setMove(move, player.getIcon());
+                }
+                catch (IllegalMoveException e) {
+                    return result(snapshot, player.getIcon().opponent(), true, moves, moveNanos);
+                }
+                snapshot = snapshot.with(move, player.getIcon());
+                observer.moveMade(snapshot, player.getIcon(), move);
+
+                if (board.isWinner(player.getIcon())) return result(snapshot, player.getIcon(), false, moves, moveNanos);
+                if (board.isFull()) return result(snapshot, Icon.NONE, false, moves, moveNanos);
+                player = player == xPlayer ? oPlayer : xPlayer;
+            }
+        }
+        finally {
+            // A player may still be thinking on the opponent's time
+            xPlayer.gameOver();
+            oPlayer.gameOver();
+        }
+    }
+
+    /**
+     * Creates the result of a finished game and tells the observer.
+     *
+     * @param board The final board.
+     * @param winner The icon of the winner, or {@link Icon#NONE} for a draw.
+     * @param forfeit true if the game ended with an illegal move.
+     * @param moves The moves that were played.
+     * @param moveNanos The time taken for each move, only the first moves.size() are used.
+     * @return The result.
+     */
+    private GameResult result(BoardSnapshot board, Icon winner, boolean forfeit, List<Position> moves, long[] moveNanos) {
+        GameResult result = new GameResult(winner, forfeit, moves, Arrays.copyOf(moveNanos, moves.size()));
+        observer.gameOver(board, result);
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts many games at the same time. Sessions do not hold a thread while they wait for a move: the turns of
+ * all sessions run as events on a few event threads, and the moves of computer players are computed on a separate,
+ * bounded compute pool. A slow search therefore only delays its own game, never the moves arriving for other games.
+ */
+public class GameServer implements AutoCloseable {
+    private final ExecutorService events;
+    private final ForkJoinPool compute;
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+
+    /**
+     * Creates a new instance of the {@link GameServer} class.
+     *
+     * @param eventThreads The number of threads that run the turns of all sessions.
+     * @param computeThreads The number of threads that compute the moves of computer players.
+     */
+    public GameServer(int eventThreads, int computeThreads) {
+        this.events = Executors.newFixedThreadPool(eventThreads, runnable -> {
+            Thread thread = new Thread(runnable, "game-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compute = new ForkJoinPool(computeThreads);
+    }
+
+    /**
+     * Opens and starts a new session. The session is removed from the server when the game is over.
+     *
+     * @param rules The rules of the game.
+     * @param xPlayer The X player, not shared with other sessions.
+     * @param oPlayer The O player, not shared with other sessions.
+     * @return The started session.
+     */
+    public GameSession open(Rules rules, Player xPlayer, Player oPlayer) {
+        long id = ids.incrementAndGet();
+        GameSession session = new GameSession(id, rules, xPlayer, oPlayer, events, compute);
+        sessions.put(id, session);
+        session.start().whenComplete((result, error) -> {
+            sessions.remove(id);
+            finished.increment();
+            if (result != null) moves.add(result.moves().size());
+        });
+        return session;
+    }
+
+    /**
+     * Returns a running session.
+     *
+     * @param id The id of the session.
+     * @return The session, or null if there is no running session with that id.
+     */
+    public GameSession getSession(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Returns the number of sessions that are running.
+     *
+     * @return The number of running sessions.
+     */
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of sessions that are over.
+     *
+     * @return The number of finished sessions.
+     */
+    public long getFinishedSessions() {
+        return finished.sum();
+    }
+
+    /**
+     * Returns the number of moves played in all finished sessions.
+     *
+     * @return The number of moves.
+     */
+    public long getMovesPlayed() {
+        return moves.sum();
+    }
+
+    /**
+     * Stops the threads of the server. Running sessions do not finish.
+     */
+    @Override
+    public void close() {
+        events.shutdownNow();
+        compute.shutdownNow();
+    }
+}
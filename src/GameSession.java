@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A game hosted by a {@link GameServer}. The session does not own a thread: every turn is an event that asks
+ * the player to move and continues when the move arrives. A {@link RemotePlayer} moves when its client submits
+ * a move, any other player is run on the compute pool. The steps of one session never run at the same time,
+ * but they may run on different threads of the event executor.
+ */
+public class GameSession {
+    private final long id;
+    private final Board board;
+    private final Player xPlayer;
+    private final Player oPlayer;
+    private final Executor events;
+    private final Executor compute;
+    private final List<Position> moves;
+    private final long[] moveNanos;
+    private final CompletableFuture<GameResult> result = new CompletableFuture<>();
+    private Player player;
+    // What the players see, it follows the board move by move without copying it
+    private BoardSnapshot snapshot;
+
+    /**
+     * Creates a new instance of the {@link GameSession} class. Players must not be shared with other sessions.
+     *
+     * @param id The id of the session.
+     * @param rules The rules of the game.
+     * @param xPlayer The X player.
+     * @param oPlayer The O player.
+     * @param events The executor the turns of the game run on.
+     * @param compute The executor the moves of players other than {@link RemotePlayer} are computed on.
+     */
+    public GameSession(long id, Rules rules, Player xPlayer, Player oPlayer, Executor events, Executor compute) {
+        this.id = id;
+        this.board = new Board(rules);
+        this.snapshot = BoardSnapshot.empty(rules);
+        this.xPlayer = xPlayer;
+        this.oPlayer = oPlayer;
+        this.events = events;
+        this.compute = compute;
+        this.moves = new ArrayList<>(rules.cells);
+        this.moveNanos = new long[rules.cells];
+    }
+
+    /**
+     * Starts the game, X moves first.
+     *
+     * @return A future that completes with the result when the game is over.
+     */
+    public CompletableFuture<GameResult> start() {
+        xPlayer.setIcon(Icon.X);
+        oPlayer.setIcon(Icon.O);
+        player = xPlayer;
+        events.execute(this::nextTurn);
+        return result;
+    }
+
+    /**
+     * Returns the id of the session.
+     *
+     * @return The id.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the result of the game.
+     *
+     * @return A future that completes with the result when the game is over.
+     */
+    public CompletableFuture<GameResult> getResult() {
+        return result;
+    }
+
+    /**
+     * Asks the player to move and continues on the event executor when the move arrives.
+     */
+    private void nextTurn() {
+        Player current = player;
+        BoardSnapshot view = snapshot;
+        long start = System.nanoTime();
+
+        // A remote player hands the snapshot to its client, it can not change the game
+        CompletableFuture<Position> move = current instanceof RemotePlayer remote
+                ? remote.requestMove(view)
+                : CompletableFuture.supplyAsync(() -> current.getMove(view), compute);
+        move.whenCompleteAsync((position, error) -> onMove(current, position, error, System.nanoTime() - start), events);
+    }
+
+    /**
+     * Plays a move that arrived and either ends the game or starts the next turn.
+     *
+     * @param current The player that moved.
+     * @param position The move, or null if the player failed.
+     * @param error The exception of the player, or null if the move arrived.
+     * @param nanos The time the player took.
+     */
+    private void onMove(Player current, Position position, Throwable error, long nanos) {
+        try {
+            moveNanos[moves.size()] = nanos;
+            moves.add(position);
+
+            // Set move, if move is illegal or the player failed opponent wins
+            try {
+                if (error != null) throw new IllegalMoveException(error);
+                if (position == null) throw new IllegalMoveException("No move");
+                board.setMove(position, current.getIcon());
+            }
+            catch (IllegalMoveException e) {
+                finish(current.getIcon().opponent(), true);
+                return;
+            }
+            snapshot = snapshot.with(position, current.getIcon());
+
+            if (board.isWinner(current.getIcon())) finish(current.getIcon(), false);
+            else if (board.isFull()) finish(Icon.NONE, false);
+            else {
+                player = current == xPlayer ? oPlayer : xPlayer;
+                nextTurn();
+            }
+        }
+        catch (RuntimeException e) {
+            playersDone();
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Ends the game.
+     *
+     * @param winner The icon of the winner, or {@link Icon#NONE} for a draw.
+     * @param forfeit true if the game ended with an illegal move.
+     */
+    private void finish(Icon winner, boolean forfeit) {
+        playersDone();
+        result.complete(new GameResult(winner, forfeit, moves, Arrays.copyOf(moveNanos, moves.size())));
+    }
+
+    /**
+     * Tells both players the game is over, so a player thinking on the opponent's time stops.
+     */
+    private void playersDone() {
+        xPlayer.gameOver();
+        oPlayer.gameOver();
+    }
+}
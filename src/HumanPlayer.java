@@ -1,9 +1,13 @@
 import java.util.Scanner;
+import java.util.function.Predicate;
 
 /**
  * Represents a human player that uses the console to do a move.
  */
 public class HumanPlayer extends Player {
+    // One scanner for all moves and players, a new scanner per move can lose input that the old one buffered
+    private static final Scanner SCANNER = new Scanner(System.in);
+
     /**
      * Lets a human put moves on the game board using the console.
      *
@@ -12,7 +16,28 @@ public class HumanPlayer extends Player {
      */
     @Override
     public Position getMove(Board board) {
-        Scanner scanner = new Scanner(System.in);
+        return readMove(board.getRules().cols, board::isAllowed);
+    }
+
+    /**
+     * Lets a human put moves on the game board using the console, without creating a board from the snapshot.
+     *
+     * @param snapshot The current game board on which the player can make a move.
+     * @return The chosen move represented as a {@link Position} on the board.
+     */
+    @Override
+    public Position getMove(BoardSnapshot snapshot) {
+        return readMove(snapshot.getRules().cols, snapshot::isAllowed);
+    }
+
+    /**
+     * Reads moves from the console until one is allowed.
+     *
+     * @param cols The number of columns of the board, the cells are numbered row by row from 1.
+     * @param allowed Checks if a move is allowed.
+     * @return The chosen move represented as a {@link Position} on the board.
+     */
+    private static Position readMove(int cols, Predicate<Position> allowed) {
         Position movePos;
 
         // Loop while move from user is invalid
@@ -21,7 +46,7 @@ public class HumanPlayer extends Player {
 
             // Get move from user
             System.out.print("Enter move: ");
-            String userInput = scanner.nextLine();
+            String userInput = SCANNER.nextLine();
 
             // Check if move is an integer
             try {
@@ -33,8 +58,8 @@ public class HumanPlayer extends Player {
             }
 
             // Check if move is possible
-            movePos = new Position(move / board.size, move % board.size);
-            if (board.isAllowed(movePos)) break;
+            movePos = new Position(move / cols, move % cols);
+            if (allowed.test(movePos)) break;
             System.out.println("Invalid move");
         }
 
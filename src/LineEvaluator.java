@@ -0,0 +1,42 @@
+/**
+ * Scores a position by its open lines: lines that hold icons of only one player and so can still be won.
+ * Each open line is weighted by the number of icons on it, a line closer to completion is worth far more.
+ * The board keeps the number of open lines per player and icon count up to date on every move,
+ * so evaluating a position costs O(k) instead of a scan of the board.
+ */
+public class LineEvaluator implements Evaluator {
+    private static final int WIN = 1 << 24;
+    private static final int MAX_WEIGHT = 1 << 16;
+
+    /**
+     * Scores a position that has no winner yet.
+     *
+     * @param board The board to score.
+     * @param player The player to score the board for.
+     * @return The weighted open lines of the player minus those of the opponent.
+     */
+    @Override
+    public int evaluate(Board board, Icon player) {
+        int k = board.getRules().k;
+        long score = 0;
+        long weight = 1;
+
+        for (int count = 1; count < k; count++) {
+            score += weight * (board.getOpenLines(player, count) - board.getOpenLines(player.opponent(), count));
+            weight = Math.min(weight * 8, MAX_WEIGHT);
+        }
+
+        // Stay clear of the win scores on huge boards
+        return (int) Math.max(-(WIN - 1), Math.min(WIN - 1, score));
+    }
+
+    /**
+     * Returns the base score of a win, bigger than any evaluation.
+     *
+     * @return The base score of a win.
+     */
+    @Override
+    public int winScore() {
+        return WIN;
+    }
+}
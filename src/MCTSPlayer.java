@@ -0,0 +1,326 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents an AI player that uses Monte Carlo tree search with UCT, for boards too big for minimax to see far.
+ * Each iteration walks down the tree to a leaf, finishes the game with random moves and counts the result
+ * in every node on the way. The most visited move is played.
+ * <p>
+ * The tree is kept between moves: when the opponent's reply is in the tree, the search continues from there.
+ * With more than one thread all threads grow the same tree. A thread counts its visit on the way down and only
+ * adds the result on the way back, so until then the visit counts as a loss (virtual loss) and the other
+ * threads try other moves.
+ */
+public class MCTSPlayer extends Player {
+    private static final VarHandle VISITS;
+    private static final VarHandle HALF_POINTS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISITS = lookup.findVarHandle(Node.class, "visits", int.class);
+            HALF_POINTS = lookup.findVarHandle(Node.class, "halfPoints", int.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long iterations;
+    private final Duration budget;
+    private double exploration = Math.sqrt(2);
+    private int threads = 1;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final SplittableRandom seeds = new SplittableRandom();
+    private final AtomicLong done = new AtomicLong();
+    // The node of the last chosen move and the board after it, to find the new root on the next move
+    private Node lastNode;
+    private Board lastBoard;
+
+    /**
+     * A position in the search tree, reached by a move.
+     */
+    private static final class Node {
+        final int move;
+        final Icon mover;
+        volatile Node[] children;
+        volatile int visits;
+        // Half points so a draw counts as half a win: 2 for a win of the mover, 1 for a draw
+        volatile int halfPoints;
+
+        /**
+         * Creates a new node.
+         *
+         * @param move The index of the cell of the move that leads to this node, -1 for the root of a new tree.
+         * @param mover The player that made the move.
+         */
+        Node(int move, Icon mover) {
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+
+    /**
+     * Creates a player that runs a fixed number of iterations per move.
+     *
+     * @param iterations The number of iterations per move.
+     */
+    public MCTSPlayer(long iterations) {
+        this.iterations = iterations;
+        this.budget = null;
+    }
+
+    /**
+     * Creates a player that searches for a fixed time per move.
+     *
+     * @param budget The time the player may think per move.
+     */
+    public MCTSPlayer(Duration budget) {
+        this.iterations = Long.MAX_VALUE;
+        this.budget = budget;
+    }
+
+    /**
+     * Computes a move with Monte Carlo tree search.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The most visited move.
+     */
+    @Override
+    public Position getMove(Board board) {
+        long deadline = budget == null ? Long.MAX_VALUE : System.nanoTime() + budget.toNanos();
+        Node root = reuseRoot(board);
+        done.set(0);
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(threads - 1);
+        for (int t = 1; t < threads; t++) {
+            Board copy = board.copy();
+            SplittableRandom random = seeds.split();
+            tasks.add(pool.submit(() -> search(root, copy, random, deadline)));
+        }
+        search(root, board.copy(), seeds.split(), deadline);
+        for (ForkJoinTask<?> task : tasks) task.join();
+
+        // The most visited move is the most reliable one
+        Node best = null;
+        for (Node child : root.children) {
+            if (best == null || child.visits > best.visits) best = child;
+        }
+
+        lastNode = best;
+        lastBoard = board.copy();
+        lastBoard.set(best.move, getIcon());
+        return board.position(best.move);
+    }
+
+    /**
+     * Returns the number of iterations of all threads during the last call to {@link #getMove(Board)}.
+     *
+     * @return The number of iterations.
+     */
+    public long getIterationCount() {
+        return done.get();
+    }
+
+    /**
+     * Sets the exploration constant of UCT. Higher values try more moves, lower values look deeper at the best ones.
+     *
+     * @param exploration The exploration constant, the square root of 2 by default.
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * Sets the number of threads that grow the tree. One of them is the calling thread, the others run on the pool.
+     *
+     * @param threads The number of threads, 1 by default.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the pool the extra threads run on. The common pool is used by default.
+     *
+     * @param pool The pool to search on.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the node of the current position from the tree of the last move, or a new root when it is not there.
+     *
+     * @param board The current board.
+     * @return The root of the search.
+     */
+    private Node reuseRoot(Board board) {
+        Node root = null;
+        if (lastBoard != null && lastBoard.getRules() == board.getRules()
+                && lastBoard.getEmptyCells() == board.getEmptyCells() + 1) {
+            // The opponent's reply is the only difference with the board after our last move
+            int reply = -1;
+            boolean sameGame = true;
+            for (int cell = 0; cell < board.getRules().cells && sameGame; cell++) {
+                Icon icon = board.get(cell);
+                if (icon == lastBoard.get(cell)) continue;
+                if (reply >= 0 || lastBoard.get(cell) != Icon.NONE || icon != getIcon().opponent()) sameGame = false;
+                reply = cell;
+            }
+
+            Node[] children = lastNode.children;
+            if (sameGame && children != null) {
+                for (Node child : children) if (child.move == reply) root = child;
+            }
+        }
+
+        lastNode = null;
+        lastBoard = null;
+        if (root == null) root = new Node(-1, getIcon().opponent());
+        if (root.children == null) expand(root, board);
+        return root;
+    }
+
+    /**
+     * Runs iterations until the budget is used up.
+     *
+     * @param root The root of the tree.
+     * @param board A board of this thread alone, with the root position on it.
+     * @param random The random generator of this thread.
+     * @param deadline The deadline as a {@link System#nanoTime()} value.
+     */
+    private void search(Node root, Board board, SplittableRandom random, long deadline) {
+        int cells = board.getRules().cells;
+        Node[] path = new Node[cells + 1];
+        int[] played = new int[cells];
+        int[] moves = new int[cells];
+
+        while (done.getAndIncrement() < iterations && (deadline == Long.MAX_VALUE || System.nanoTime() < deadline)) {
+            iterate(root, board, random, path, played, moves);
+        }
+    }
+
+    /**
+     * Runs one iteration: selection, expansion, a random playout and backpropagation.
+     * The board is restored before returning.
+     *
+     * @param root The root of the tree.
+     * @param board The board with the root position on it.
+     * @param random The random generator of this thread.
+     * @param path The buffer for the nodes on the way down.
+     * @param played The buffer for the cells played during the iteration.
+     * @param moves The buffer for the possible moves during the playout.
+     */
+    private void iterate(Node root, Board board, SplittableRandom random, Node[] path, int[] played, int[] moves) {
+        VISITS.getAndAdd(root, 1);
+        Node node = root;
+        int depth = 0;
+        int count = 0;
+        Icon winner = null;
+
+        // Selection: follow UCT down the tree, counting each visit right away as a virtual loss
+        while (true) {
+            Node[] children = node.children;
+            if (children == null) {
+                // A leaf that was visited before gets children, a new leaf goes straight to the playout
+                if (node.visits < 2) break;
+                children = expand(node, board);
+            }
+
+            node = select(node, children);
+            VISITS.getAndAdd(node, 1);
+            path[depth++] = node;
+            board.set(node.move, node.mover);
+            played[count++] = node.move;
+
+            if (board.isWinner(node.mover)) winner = node.mover;
+            else if (board.isFull()) winner = Icon.NONE;
+            if (winner != null) break;
+        }
+
+        // Playout: random moves until the game is over
+        Icon player = node.mover.opponent();
+        if (winner == null) {
+            int empty = board.getPossibleMoves(moves);
+            while (true) {
+                int pick = random.nextInt(empty);
+                int cell = moves[pick];
+                moves[pick] = moves[--empty];
+                board.set(cell, player);
+                played[count++] = cell;
+
+                if (board.isWinner(player)) {
+                    winner = player;
+                    break;
+                }
+                if (empty == 0) {
+                    winner = Icon.NONE;
+                    break;
+                }
+                player = player.opponent();
+            }
+        }
+
+        // Backpropagation: add the result, the visits were counted on the way down
+        for (int i = 0; i < depth; i++) {
+            Node visited = path[i];
+            int points = winner == visited.mover ? 2 : winner == Icon.NONE ? 1 : 0;
+            if (points > 0) HALF_POINTS.getAndAdd(visited, points);
+        }
+        for (int i = 0; i < count; i++) board.remove(played[i]);
+    }
+
+    /**
+     * Picks the child with the highest UCT value, a child that was never visited first.
+     *
+     * @param parent The node to pick a child of.
+     * @param children The children of the node.
+     * @return The chosen child.
+     */
+    private Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(1, parent.visits));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits;
+            if (visits == 0) return child;
+
+            double value = child.halfPoints / (2.0 * visits) + exploration * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gives a node a child for every possible move, unless another thread already did.
+     *
+     * @param node The node to expand.
+     * @param board The board with the position of the node on it.
+     * @return The children of the node.
+     */
+    private static Node[] expand(Node node, Board board) {
+        synchronized (node) {
+            Node[] children = node.children;
+            if (children != null) return children;
+
+            int[] moves = new int[board.getEmptyCells()];
+            int count = board.getPossibleMoves(moves);
+            Icon mover = node.mover.opponent();
+            children = new Node[count];
+            for (int i = 0; i < count; i++) children[i] = new Node(moves[i], mover);
+            node.children = children;
+            return children;
+        }
+    }
+}
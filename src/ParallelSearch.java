@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits the moves at the root of an alpha-beta search over the threads of a {@link ForkJoinPool}.
+ * The most promising move is searched first on the calling thread (young brothers wait), the other moves are
+ * then searched in parallel, each on its own copy of the board and with its own {@link AlphaBetaSearch}.
+ * <p>
+ * Every move is searched with a window just below the best score found so far. Whatever order the moves finish
+ * in, the moves that tie with the best score get their exact score, so the result of a tiebreaker is deterministic.
+ */
+public class ParallelSearch {
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private final Evaluator evaluator;
+    private boolean candidateMoves;
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong terminals = new AtomicLong();
+    private final AtomicLong cutoffs = new AtomicLong();
+    private final AtomicLong tableCutoffs = new AtomicLong();
+
+    /**
+     * Creates a new instance of the {@link ParallelSearch} class.
+     *
+     * @param pool The pool to run the search on.
+     * @param table The transposition table shared by all threads, or null to search without one.
+     * @param evaluator The evaluator that scores positions at the end of the search depth.
+     */
+    public ParallelSearch(ForkJoinPool pool, TranspositionTable table, Evaluator evaluator) {
+        this.pool = pool;
+        this.table = table;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Scores every possible move of a board, see {@link AlphaBetaSearch#scoreMoves(Board, int, Icon, List)}.
+     *
+     * @param board The board to search, it is restored before returning.
+     * @param ply The depth of the search tree (number of ply) to explore.
+     * @param player The player to move.
+     * @param moves The moves to score, in the order the tiebreaker uses.
+     * @return The score of each move, in the same order as the moves.
+     */
+    public int[] scoreMoves(Board board, int ply, Icon player, List<Position> moves) {
+        int[] scores = new int[moves.size()];
+        AlphaBetaSearch eldest = new AlphaBetaSearch(board.getRules(), table);
+        eldest.setEvaluator(evaluator);
+        eldest.setCandidateMoves(candidateMoves);
+        int[] order = eldest.orderRootMoves(board, ply, moves);
+
+        // Search the eldest brother alone to get a window for the others
+        scores[order[0]] = eldest.scoreMove(board, ply, player, moves.get(order[0]), -AlphaBetaSearch.INFINITY);
+        count(eldest);
+        AtomicInteger best = new AtomicInteger(scores[order[0]]);
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(order.length - 1);
+        for (int k = 1; k < order.length; k++) {
+            int i = order[k];
+            Board copy = board.copy();
+            tasks.add(pool.submit(() -> {
+                AlphaBetaSearch search = new AlphaBetaSearch(copy.getRules(), table);
+                search.setEvaluator(evaluator);
+                search.setCandidateMoves(candidateMoves);
+                scores[i] = search.scoreMove(copy, ply, player, moves.get(i), best.get() - 1);
+                best.accumulateAndGet(scores[i], Math::max);
+                count(search);
+            }));
+        }
+
+        for (ForkJoinTask<?> task : tasks) task.join();
+        return scores;
+    }
+
+    /**
+     * Restricts the moves below the root to candidate moves, see {@link AlphaBetaSearch#setCandidateMoves(boolean)}.
+     *
+     * @param candidateMoves true to search only candidate moves, false to search every move (the default).
+     */
+    public void setCandidateMoves(boolean candidateMoves) {
+        this.candidateMoves = candidateMoves;
+    }
+
+    /**
+     * Returns the number of nodes (positions) visited by all threads since the last reset.
+     *
+     * @return The number of visited nodes.
+     */
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    /**
+     * Returns the number of won, lost or drawn positions visited by all threads since the last reset.
+     *
+     * @return The number of terminal positions.
+     */
+    public long getTerminals() {
+        return terminals.get();
+    }
+
+    /**
+     * Returns the number of beta cutoffs of all threads since the last reset.
+     *
+     * @return The number of cutoffs.
+     */
+    public long getCutoffs() {
+        return cutoffs.get();
+    }
+
+    /**
+     * Returns the number of positions the transposition table answered for all threads since the last reset.
+     *
+     * @return The number of transposition table cutoffs.
+     */
+    public long getTableCutoffs() {
+        return tableCutoffs.get();
+    }
+
+    /**
+     * Resets the node counter and the other counters to zero.
+     */
+    public void resetNodes() {
+        nodes.set(0);
+        terminals.set(0);
+        cutoffs.set(0);
+        tableCutoffs.set(0);
+    }
+
+    /**
+     * Adds the counters of a finished search to the totals.
+     *
+     * @param search The finished search.
+     */
+    private void count(AlphaBetaSearch search) {
+        nodes.addAndGet(search.getNodes());
+        terminals.addAndGet(search.getTerminals());
+        cutoffs.addAndGet(search.getCutoffs());
+        tableCutoffs.addAndGet(search.getTableCutoffs());
+    }
+}
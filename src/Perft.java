@@ -0,0 +1,305 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the positions of the game tree per depth, with the wins and draws among them, like perft in chess engines.
+ * A branch stops where the game stops: at a win or a full board. The counts are a regression test for every change
+ * to {@link Board} (a 3x3 board has 549946 nodes, 5478 positions and 765 positions up to symmetry), and the speed
+ * is a benchmark of move generation and win detection.
+ * <p>
+ * The first levels of the tree are split over a {@link ForkJoinPool}, every task counts its own subtree.
+ * <p>
+ * Usage: {@code java Perft [size] [depth] [none|transpositions|symmetries]}.
+ */
+public class Perft {
+    // Levels of the tree that are split into tasks, below that a task searches on its own
+    private static final int SPLIT_DEPTH = 2;
+    private static final int NODES = 0;
+    private static final int X_WINS = 1;
+    private static final int O_WINS = 2;
+    private static final int DRAWS = 3;
+
+    private final Rules rules;
+    private Dedup dedup = Dedup.NONE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private int maxDepth;
+    // Positions seen so far, by base-3 index on small boards and by Zobrist hash on others
+    private AtomicLongArray seenBits;
+    private Set<Long> seenHashes;
+    private int[] powers;
+
+    /**
+     * Which positions count as the same.
+     */
+    public enum Dedup {
+        /** Every path through the tree counts, the same position reached in another order counts again. */
+        NONE,
+        /** Every position counts once, whatever the order of the moves. */
+        TRANSPOSITIONS,
+        /** Every position counts once, together with its rotations and reflections. */
+        SYMMETRIES
+    }
+
+    /**
+     * The counts per depth, index d holds the positions after d moves.
+     *
+     * @param nodes The number of positions.
+     * @param xWins The number of positions won by X.
+     * @param oWins The number of positions won by O.
+     * @param draws The number of full boards without a winner.
+     * @param elapsedNanos The time the count took in nanoseconds.
+     */
+    public record Result(long[] nodes, long[] xWins, long[] oWins, long[] draws, long elapsedNanos) {
+        /**
+         * Returns the number of positions at all depths.
+         *
+         * @return The total number of positions.
+         */
+        public long totalNodes() {
+            long total = 0;
+            for (long count : nodes) total += count;
+            return total;
+        }
+
+        /**
+         * Returns the number of positions counted per second.
+         *
+         * @return The speed of the count.
+         */
+        public double nodesPerSecond() {
+            return totalNodes() * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(String.format("%5s %14s %12s %12s %12s%n",
+                    "depth", "nodes", "X wins", "O wins", "draws"));
+            long xTotal = 0;
+            long oTotal = 0;
+            long drawTotal = 0;
+            for (int d = 0; d < nodes.length; d++) {
+                builder.append(String.format("%5d %14d %12d %12d %12d%n", d, nodes[d], xWins[d], oWins[d], draws[d]));
+                xTotal += xWins[d];
+                oTotal += oWins[d];
+                drawTotal += draws[d];
+            }
+            builder.append(String.format("%5s %14d %12d %12d %12d%n", "total", totalNodes(), xTotal, oTotal, drawTotal));
+            builder.append(String.format("%d ms, %.0f nodes/s", elapsedNanos / 1_000_000, nodesPerSecond()));
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Creates a new instance of the {@link Perft} class.
+     *
+     * @param rules The rules of the game to count.
+     */
+    public Perft(Rules rules) {
+        this.rules = rules;
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : size * size;
+        Dedup dedup = args.length > 2 ? Dedup.valueOf(args[2].toUpperCase()) : Dedup.NONE;
+
+        Perft perft = new Perft(Rules.square(size));
+        perft.setDedup(dedup);
+        System.out.println(perft.run(depth));
+    }
+
+    /**
+     * Sets which positions count as the same, {@link Dedup#NONE} by default.
+     *
+     * @param dedup The deduplication mode.
+     */
+    public void setDedup(Dedup dedup) {
+        this.dedup = dedup;
+    }
+
+    /**
+     * Sets the pool the count runs on. The common pool is used by default.
+     *
+     * @param pool The pool to count on.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the positions up to a depth, starting from the empty board.
+     *
+     * @param depth The number of moves to look ahead.
+     * @return The counts per depth.
+     */
+    public Result run(int depth) {
+        maxDepth = Math.min(depth, rules.cells);
+        seenBits = null;
+        seenHashes = null;
+        if (dedup != Dedup.NONE && rules.cells <= Tablebase.MAX_CELLS) {
+            powers = Tablebase.powers(rules);
+            seenBits = new AtomicLongArray((int) ((3L * powers[powers.length - 1] + 63) / 64));
+        }
+        else if (dedup != Dedup.NONE) seenHashes = ConcurrentHashMap.newKeySet();
+
+        long start = System.nanoTime();
+        Board board = new Board(rules);
+        int[] indexes = new int[board.getZobrist().symmetries];
+        long[][] counts = pool.invoke(new Task(board, indexes, 0, Icon.O));
+        return new Result(counts[NODES], counts[X_WINS], counts[O_WINS], counts[DRAWS], System.nanoTime() - start);
+    }
+
+    /**
+     * Counts a subtree, splitting it into subtasks near the root.
+     */
+    private final class Task extends RecursiveTask<long[][]> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized, a board is not serializable
+        private final transient Board board;
+        private final int[] indexes;
+        private final int depth;
+        private final Icon mover;
+
+        /**
+         * Creates a task for the subtree of a position.
+         *
+         * @param board The position, owned by the task.
+         * @param indexes The base-3 index of the position under every symmetry, owned by the task.
+         * @param depth The number of moves played.
+         * @param mover The player that made the last move.
+         */
+        Task(Board board, int[] indexes, int depth, Icon mover) {
+            this.board = board;
+            this.indexes = indexes;
+            this.depth = depth;
+            this.mover = mover;
+        }
+
+        @Override
+        protected long[][] compute() {
+            long[][] counts = new long[4][maxDepth + 1];
+            if (depth >= SPLIT_DEPTH) {
+                visit(board, indexes, depth, mover, counts, new int[maxDepth + 1][rules.cells]);
+                return counts;
+            }
+            if (!count(board, indexes, depth, mover, counts)) return counts;
+
+            Icon player = mover.opponent();
+            List<Task> tasks = new ArrayList<>();
+            int[] moves = new int[rules.cells];
+            int count = board.getPossibleMoves(moves);
+            for (int i = 0; i < count; i++) {
+                Board child = board.copy();
+                int[] childIndexes = indexes.clone();
+                play(child, childIndexes, moves[i], player, 1);
+                tasks.add(new Task(child, childIndexes, depth + 1, player));
+            }
+
+            invokeAll(tasks);
+            for (Task task : tasks) {
+                long[][] result = task.join();
+                for (int c = 0; c < counts.length; c++)
+                    for (int d = 0; d <= maxDepth; d++) counts[c][d] += result[c][d];
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Counts a subtree on the calling thread.
+     *
+     * @param board The position, restored before returning.
+     * @param indexes The base-3 index of the position under every symmetry.
+     * @param depth The number of moves played.
+     * @param mover The player that made the last move.
+     * @param counts The counts to add to.
+     * @param moveBuffers A move buffer per depth.
+     */
+    private void visit(Board board, int[] indexes, int depth, Icon mover, long[][] counts, int[][] moveBuffers) {
+        if (!count(board, indexes, depth, mover, counts)) return;
+
+        Icon player = mover.opponent();
+        int[] moves = moveBuffers[depth];
+        int count = board.getPossibleMoves(moves);
+        for (int i = 0; i < count; i++) {
+            play(board, indexes, moves[i], player, 1);
+            visit(board, indexes, depth + 1, player, counts, moveBuffers);
+            play(board, indexes, moves[i], player, -1);
+        }
+    }
+
+    /**
+     * Counts a position unless it was seen before.
+     *
+     * @param board The position.
+     * @param indexes The base-3 index of the position under every symmetry.
+     * @param depth The number of moves played.
+     * @param mover The player that made the last move.
+     * @param counts The counts to add to.
+     * @return true if the subtree of the position should be counted, false if the position is a leaf or a duplicate.
+     */
+    private boolean count(Board board, int[] indexes, int depth, Icon mover, long[][] counts) {
+        if (dedup != Dedup.NONE && !firstVisit(board, indexes)) return false;
+
+        counts[NODES][depth]++;
+        if (depth > 0 && board.isWinner(mover)) {
+            counts[mover == Icon.X ? X_WINS : O_WINS][depth]++;
+            return false;
+        }
+        if (board.isFull()) {
+            counts[DRAWS][depth]++;
+            return false;
+        }
+        return depth < maxDepth;
+    }
+
+    /**
+     * Marks a position as seen.
+     *
+     * @param board The position.
+     * @param indexes The base-3 index of the position under every symmetry.
+     * @return true if the position was not seen before otherwise false.
+     */
+    private boolean firstVisit(Board board, int[] indexes) {
+        if (seenBits == null) {
+            int symmetry = dedup == Dedup.SYMMETRIES ? board.canonicalSymmetry() : 0;
+            return seenHashes.add(board.hash(symmetry));
+        }
+
+        int index = indexes[0];
+        if (dedup == Dedup.SYMMETRIES)
+            for (int s = 1; s < indexes.length; s++) index = Math.min(index, indexes[s]);
+
+        int word = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long bits = seenBits.get(word);
+            if ((bits & mask) != 0) return false;
+            if (seenBits.compareAndSet(word, bits, bits | mask)) return true;
+        }
+    }
+
+    /**
+     * Plays or takes back a move, keeping the indexes up to date when they are used.
+     *
+     * @param board The board.
+     * @param indexes The base-3 index of the board under every symmetry.
+     * @param cell The index of the cell.
+     * @param player The player that makes the move.
+     * @param sign 1 to play the move, -1 to take it back.
+     */
+    private void play(Board board, int[] indexes, int cell, Icon player, int sign) {
+        board.set(cell, sign > 0 ? player : Icon.NONE);
+        if (seenBits == null) return;
+
+        int digit = sign * (player == Icon.X ? 1 : 2);
+        Zobrist zobrist = board.getZobrist();
+        for (int s = 0; s < indexes.length; s++) indexes[s] += digit * powers[zobrist.map(s, cell)];
+    }
+}
@@ -31,4 +31,24 @@ public abstract class Player {
      * @return The chosen move represented as a {@link Position} on the board.
      */
     abstract public Position getMove(Board board);
+
+    /**
+     * Chooses a move on an immutable snapshot of the game board, this is how the game asks for moves.
+     * By default the snapshot is turned into a board for {@link #getMove(Board)} with {@link BoardSnapshot#toBoard()},
+     * which copies the bitboards and counts the lines in bulk, so searching players get their board cheaply.
+     * Players that only read the board can override this method to avoid creating the board.
+     *
+     * @param snapshot The current game board on which the player can make a move.
+     * @return The chosen move represented as a {@link Position} on the board.
+     */
+    public Position getMove(BoardSnapshot snapshot) {
+        return getMove(snapshot.toBoard());
+    }
+
+    /**
+     * Called when a game the player takes part in is over, however it ended. Players that keep working between
+     * their moves stop here, by default nothing happens.
+     */
+    public void gameOver() {
+    }
 }
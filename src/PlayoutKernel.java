@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Plays random games to the end as fast as possible, for rollouts and as a baseline for other players.
+ * <p>
+ * The kernel plays a batch of games at once, one move in every game per step. The state of the games is kept
+ * as a structure of arrays: one array with the bitboards of X of all games, one for O and one with the cells
+ * that are still empty per game. A random game is a random order of the empty cells, which is shuffled while it is
+ * played: every move swaps a random remaining cell to the end of the game's cells, like one step of a Fisher-Yates
+ * shuffle. Only the lines through the new icon are checked for a win. Nothing is allocated while playing.
+ * <p>
+ * A kernel is not thread-safe, use one kernel and a split of the random generator per thread.
+ * <p>
+ * Usage: {@code java PlayoutKernel [size] [k] [games] [threads]}, reports the playouts per second per core.
+ */
+public class PlayoutKernel {
+    private static final int DEFAULT_BATCH = 64;
+
+    private final Rules rules;
+    private final int batch;
+    // Game g owns the words from g * rules.words and the cells from g * rules.cells
+    private final long[] xBits;
+    private final long[] oBits;
+    private final int[] order;
+    private final int[] remaining;
+    // The games of the batch that are still being played, the first running ones
+    private final int[] active;
+
+    /**
+     * The combined results of the playouts.
+     *
+     * @param games The number of games played.
+     * @param xWins The number of games won by X.
+     * @param oWins The number of games won by O.
+     * @param draws The number of draws.
+     * @param elapsedNanos The time the playouts took in nanoseconds.
+     */
+    public record Result(long games, long xWins, long oWins, long draws, long elapsedNanos) {
+        /**
+         * Returns the number of games played per second.
+         *
+         * @return The speed of the playouts.
+         */
+        public double playoutsPerSecond() {
+            return games * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d playouts: X won %d, O won %d, %d draws, %.0f playouts/s",
+                    games, xWins, oWins, draws, playoutsPerSecond());
+        }
+    }
+
+    /**
+     * Creates a new instance of the {@link PlayoutKernel} class with batches of 64 games.
+     *
+     * @param rules The rules of the games.
+     */
+    public PlayoutKernel(Rules rules) {
+        this(rules, DEFAULT_BATCH);
+    }
+
+    /**
+     * Creates a new instance of the {@link PlayoutKernel} class.
+     *
+     * @param rules The rules of the games.
+     * @param batch The number of games played at once.
+     */
+    public PlayoutKernel(Rules rules, int batch) {
+        this.rules = rules;
+        this.batch = batch;
+        this.xBits = new long[batch * rules.words];
+        this.oBits = new long[batch * rules.words];
+        this.order = new int[batch * rules.cells];
+        this.remaining = new int[batch];
+        this.active = new int[batch];
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : Math.min(size, 5);
+        long games = args.length > 2 ? Long.parseLong(args[2]) : 10_000_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Rules rules = Rules.of(size, size, k);
+        Board start = new Board(rules);
+        SplittableRandom random = new SplittableRandom();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<ForkJoinTask<Result>> tasks = new ArrayList<>(threads);
+        long begin = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom split = random.split();
+            long share = games / threads + (t < games % threads ? 1 : 0);
+            tasks.add(pool.submit(() -> new PlayoutKernel(rules).play(start, Icon.X, share, split)));
+        }
+
+        long xWins = 0;
+        long oWins = 0;
+        long draws = 0;
+        for (ForkJoinTask<Result> task : tasks) {
+            Result result = task.join();
+            xWins += result.xWins();
+            oWins += result.oWins();
+            draws += result.draws();
+        }
+        pool.shutdown();
+
+        Result total = new Result(games, xWins, oWins, draws, System.nanoTime() - begin);
+        System.out.println(total);
+        System.out.printf("%.0f playouts/s per core on %d threads%n", total.playoutsPerSecond() / threads, threads);
+    }
+
+    /**
+     * Plays random games from a position until they end.
+     *
+     * @param start The position to start from, it is not changed.
+     * @param player The player to move.
+     * @param games The number of games to play.
+     * @param random The random generator, used only by this call.
+     * @return The results of the games.
+     */
+    public Result play(Board start, Icon player, long games, SplittableRandom random) {
+        long begin = System.nanoTime();
+        if (start.isWinner(Icon.X) || start.isWinner(Icon.O) || start.isFull()) {
+            Icon winner = start.isWinner(Icon.X) ? Icon.X : start.isWinner(Icon.O) ? Icon.O : Icon.NONE;
+            return new Result(games, winner == Icon.X ? games : 0, winner == Icon.O ? games : 0,
+                    winner == Icon.NONE ? games : 0, System.nanoTime() - begin);
+        }
+
+        int words = rules.words;
+        int cells = rules.cells;
+        long[] startX = new long[words];
+        long[] startO = new long[words];
+        int[] empties = new int[cells];
+        int empty = start.getPossibleMoves(empties);
+        for (int cell = 0; cell < cells; cell++) {
+            Icon icon = start.get(cell);
+            if (icon == Icon.X) startX[cell >>> 6] |= 1L << cell;
+            else if (icon == Icon.O) startO[cell >>> 6] |= 1L << cell;
+        }
+
+        long xWins = 0;
+        long oWins = 0;
+        long draws = 0;
+        for (long started = 0; started < games; ) {
+            int count = (int) Math.min(batch, games - started);
+            started += count;
+            for (int g = 0; g < count; g++) {
+                System.arraycopy(startX, 0, xBits, g * words, words);
+                System.arraycopy(startO, 0, oBits, g * words, words);
+                System.arraycopy(empties, 0, order, g * cells, empty);
+                remaining[g] = empty;
+                active[g] = g;
+            }
+
+            // All games of the batch move in step, so they have the same player to move
+            int running = count;
+            for (Icon mover = player; running > 0; mover = mover.opponent()) {
+                long[] bits = mover == Icon.X ? xBits : oBits;
+                for (int i = 0; i < running; ) {
+                    int g = active[i];
+                    int left = remaining[g]--;
+
+                    // Take a random remaining cell and move the last remaining cell into its place
+                    int pick = g * cells + random.nextInt(left);
+                    int cell = order[pick];
+                    order[pick] = order[g * cells + left - 1];
+
+                    int offset = g * words;
+                    bits[offset + (cell >>> 6)] |= 1L << cell;
+                    if (rules.isWin(bits, offset, cell)) {
+                        if (mover == Icon.X) xWins++;
+                        else oWins++;
+                        active[i] = active[--running];
+                    }
+                    else if (left == 1) {
+                        draws++;
+                        active[i] = active[--running];
+                    }
+                    else i++;
+                }
+            }
+        }
+
+        return new Result(games, xWins, oWins, draws, System.nanoTime() - begin);
+    }
+}
@@ -0,0 +1,374 @@
+import java.util.Arrays;
+
+/**
+ * Proves who wins a position with depth-first proof-number search (df-pn). Unlike a search with a fixed ply, the
+ * solver only stops at the end of the game, so it can prove forced wins on boards too big to search completely:
+ * it grows the tree where the fewest positions remain to be proven, for a win and against it.
+ * <p>
+ * Every question is "can this player force a win?". The solver asks it for the player to move and, if that fails,
+ * for the opponent; when both fail the position is a draw. The proof and disproof numbers of the positions are kept
+ * in a fixed-size table, keyed by the symmetry-canonical Zobrist hash. When a bucket is full the entry that took
+ * the least work to compute is replaced, so the table never grows and the expensive results survive.
+ * A search that needs more nodes than its budget gives up with {@link Outcome#UNKNOWN}.
+ */
+public class ProofNumberSolver {
+    private static final int INFINITY = 1 << 29;
+    private static final int ENTRY_BYTES = 2 * Long.BYTES + Integer.BYTES;
+    private static final long DEFAULT_MAX_NODES = 10_000_000;
+    // Separates the entries of the two questions, the side to move is separated by Zobrist.SIDE
+    private static final long ATTACKER_O = 0xC2B2AE3D27D4EB4FL;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int[] work;
+    private final int mask;
+    private long maxNodes = DEFAULT_MAX_NODES;
+    private long nodes;
+    // Buffers per number of empty cells, so each level of the search has its own
+    private int[][] moveBuffers = new int[0][];
+    private long[][] keyBuffers;
+    private int[][] proofBuffers;
+    private int[][] disproofBuffers;
+
+    /**
+     * The value of a position for the player to move.
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS,
+        /** The node budget ran out before the position was solved. */
+        UNKNOWN
+    }
+
+    /**
+     * The solution of a position.
+     *
+     * @param outcome The value of the position for the player to move.
+     * @param move A move that keeps the outcome for a win or a draw, null for a loss, an unknown position or a game
+     *             that is over.
+     * @param nodes The number of positions the solver expanded.
+     */
+    public record Result(Outcome outcome, Position move, long nodes) { }
+
+    /**
+     * Thrown when the node budget runs out.
+     */
+    private static final class BudgetException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final BudgetException INSTANCE = new BudgetException();
+
+        private BudgetException() {
+            super("Node budget exhausted", null, false, false);
+        }
+    }
+
+    /**
+     * Creates a new instance of the {@link ProofNumberSolver} class.
+     *
+     * @param megabytes The maximum amount of memory the table may use, rounded down to a power of two entries.
+     */
+    public ProofNumberSolver(int megabytes) {
+        long entries = Math.max(2, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.work = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Sets the number of positions a single call to {@link #solve(Board, Icon)} may expand.
+     *
+     * @param maxNodes The node budget, 10 million by default.
+     */
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        Arrays.fill(work, 0);
+    }
+
+    /**
+     * Solves a position. Results stay in the table, so solving the positions that follow a solved one is cheap.
+     *
+     * @param board The position, it is not changed.
+     * @param player The player to move.
+     * @return The outcome for the player to move and a move that achieves it.
+     */
+    public Result solve(Board board, Icon player) {
+        Icon opponent = player.opponent();
+        if (board.isWinner(player)) return new Result(Outcome.WIN, null, 0);
+        if (board.isWinner(opponent)) return new Result(Outcome.LOSS, null, 0);
+        if (board.isFull()) return new Result(Outcome.DRAW, null, 0);
+
+        // A search that runs out of budget leaves its board in an undefined state
+        Board copy = board.copy();
+        nodes = 0;
+        try {
+            if (prove(copy, player, player)) return new Result(Outcome.WIN, keepingMove(copy, player, player), nodes);
+            if (prove(copy, player, opponent)) return new Result(Outcome.LOSS, null, nodes);
+            return new Result(Outcome.DRAW, keepingMove(copy, player, opponent), nodes);
+        }
+        catch (BudgetException e) {
+            return new Result(Outcome.UNKNOWN, null, nodes);
+        }
+    }
+
+    /**
+     * Answers whether the attacker can force a win.
+     *
+     * @param board The position, restored before returning.
+     * @param mover The player to move.
+     * @param attacker The player that tries to win.
+     * @return true if the attacker wins, false if the defender can prevent it.
+     * @throws BudgetException when the node budget runs out.
+     */
+    private boolean prove(Board board, Icon mover, Icon attacker) {
+        if (moveBuffers.length != board.getRules().cells + 1) {
+            int cells = board.getRules().cells;
+            moveBuffers = new int[cells + 1][cells];
+            keyBuffers = new long[cells + 1][cells];
+            proofBuffers = new int[cells + 1][cells];
+            disproofBuffers = new int[cells + 1][cells];
+        }
+
+        long key = key(board, mover, attacker);
+        // An entry may hold an unfinished search of an earlier call that ran out of budget
+        long entry = probe(key);
+        if (entry == 0 || proof(entry) != 0 && disproof(entry) != 0)
+            entry = search(board, key, mover, attacker, INFINITY, INFINITY);
+        return proof(entry) == 0;
+    }
+
+    /**
+     * Finds the move that keeps a solved outcome: a winning move for the attacker, or a move after which
+     * the attacker can not win for the defender.
+     *
+     * @param board The solved position, restored before returning.
+     * @param mover The player to move.
+     * @param attacker The player the position was solved for.
+     * @return The move.
+     * @throws BudgetException when the node budget runs out.
+     */
+    private Position keepingMove(Board board, Icon mover, Icon attacker) {
+        int[] moves = new int[board.getEmptyCells()];
+        int count = board.getPossibleMoves(moves);
+        boolean attacking = mover == attacker;
+
+        // The table usually holds the child that solved the position, otherwise the children are solved one by one
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                board.set(moves[i], mover);
+                boolean keeps;
+                if (board.isWinner(mover)) keeps = true;
+                else if (board.isFull()) keeps = !attacking;
+                else if (pass == 0) {
+                    long entry = probe(key(board, mover.opponent(), attacker));
+                    keeps = entry != 0 && (attacking ? proof(entry) == 0 : disproof(entry) == 0);
+                }
+                else keeps = prove(board, mover.opponent(), attacker) == attacking;
+                board.remove(moves[i]);
+                if (keeps) return board.position(moves[i]);
+            }
+        }
+        throw new IllegalStateException("No move keeps the outcome");
+    }
+
+    /**
+     * Searches a position until its proof number reaches one threshold or its disproof number the other.
+     * Positions where the attacker moves need one winning move (OR nodes), positions where the defender moves
+     * need every move to lose (AND nodes). The child that is closest to deciding its parent is searched next,
+     * with thresholds that return to the parent as soon as another child becomes closer.
+     *
+     * @param board The position, restored before returning.
+     * @param key The key of the position.
+     * @param mover The player to move.
+     * @param attacker The player that tries to win.
+     * @param proofLimit The proof number threshold.
+     * @param disproofLimit The disproof number threshold.
+     * @return The packed proof and disproof numbers of the position.
+     * @throws BudgetException when the node budget runs out.
+     */
+    private long search(Board board, long key, Icon mover, Icon attacker, int proofLimit, int disproofLimit) {
+        if (++nodes > maxNodes) throw BudgetException.INSTANCE;
+        long start = nodes;
+        boolean or = mover == attacker;
+        Icon next = mover.opponent();
+
+        int empty = board.getEmptyCells();
+        int[] moves = moveBuffers[empty];
+        long[] childKeys = keyBuffers[empty];
+        int[] proofs = proofBuffers[empty];
+        int[] disproofs = disproofBuffers[empty];
+
+        // A move that wins decides the position at once
+        if (board.getThreats(mover, moves) > 0) {
+            store(key, or ? 0 : INFINITY, or ? INFINITY : 0, 1);
+            return or ? pack(0, INFINITY) : pack(INFINITY, 0);
+        }
+
+        // Otherwise a cell where the opponent would win has to be blocked, any other move loses
+        int count = board.getThreats(next, moves);
+        if (count == 0) count = board.getPossibleMoves(moves);
+
+        // A child that fills the board is exact, the others start from the table or from their number of moves
+        for (int i = 0; i < count; i++) {
+            board.set(moves[i], mover);
+            if (board.isFull()) {
+                // A draw, which is a failure for the attacker
+                proofs[i] = INFINITY;
+                disproofs[i] = 0;
+                childKeys[i] = 0;
+            }
+            else {
+                childKeys[i] = key(board, next, attacker);
+                long entry = probe(childKeys[i]);
+                if (entry != 0) {
+                    proofs[i] = proof(entry);
+                    disproofs[i] = disproof(entry);
+                }
+                else {
+                    // The fewer moves the player to move has, the easier its position is to decide
+                    proofs[i] = or ? empty - 1 : 1;
+                    disproofs[i] = or ? 1 : empty - 1;
+                }
+            }
+            board.remove(moves[i]);
+        }
+
+        int proof;
+        int disproof;
+        while (true) {
+            // The number to minimize at this node: proofs where the attacker moves, disproofs where the defender moves
+            int[] chosen = or ? proofs : disproofs;
+            int[] other = or ? disproofs : proofs;
+            int best = 0;
+            int second = INFINITY;
+            int min = chosen[0];
+            int sum = other[0];
+            for (int i = 1; i < count; i++) {
+                if (chosen[i] < min) {
+                    second = min;
+                    min = chosen[i];
+                    best = i;
+                }
+                else if (chosen[i] < second) second = chosen[i];
+                sum = add(sum, other[i]);
+            }
+
+            proof = or ? min : sum;
+            disproof = or ? sum : min;
+            if (proof >= proofLimit || disproof >= disproofLimit) break;
+
+            // Staying a quarter past the second best child (df-pn 1+e) saves switching back and forth between them
+            int minLimit = Math.min(or ? proofLimit : disproofLimit, (int) Math.min(INFINITY, second + 1L + second / 4));
+            int sumLimit = (int) Math.min(INFINITY, (long) (or ? disproofLimit : proofLimit) - sum + other[best]);
+            int cell = moves[best];
+            board.set(cell, mover);
+            long entry = or
+                    ? search(board, childKeys[best], next, attacker, minLimit, sumLimit)
+                    : search(board, childKeys[best], next, attacker, sumLimit, minLimit);
+            board.remove(cell);
+
+            // The deeper search used the buffers of other levels only, so the ones of this level are intact
+            proofs[best] = proof(entry);
+            disproofs[best] = disproof(entry);
+        }
+
+        store(key, proof, disproof, nodes - start + 1);
+        return pack(proof, disproof);
+    }
+
+    /**
+     * Computes the key of a position for a question.
+     *
+     * @param board The position.
+     * @param mover The player to move.
+     * @param attacker The player that tries to win.
+     * @return The key.
+     */
+    private static long key(Board board, Icon mover, Icon attacker) {
+        return board.hash(board.canonicalSymmetry()) ^ (mover == Icon.O ? Zobrist.SIDE : 0)
+                ^ (attacker == Icon.O ? ATTACKER_O : 0);
+    }
+
+    /**
+     * Looks up a position in the table, which has buckets of two slots.
+     *
+     * @param key The key of the position.
+     * @return The packed proof and disproof numbers, or 0 if the position is not in the table.
+     */
+    private long probe(long key) {
+        int slot = (int) key & mask & ~1;
+        if (work[slot] != 0 && keys[slot] == key) return data[slot];
+        if (work[slot + 1] != 0 && keys[slot + 1] == key) return data[slot + 1];
+        return 0;
+    }
+
+    /**
+     * Stores a position, replacing the entry of the same position or else the one that took the least work.
+     *
+     * @param key The key of the position.
+     * @param proof The proof number.
+     * @param disproof The disproof number.
+     * @param nodes The number of nodes the search of the position took.
+     */
+    private void store(long key, int proof, int disproof, long nodes) {
+        int slot = (int) key & mask & ~1;
+        if (keys[slot + 1] == key && work[slot + 1] != 0 || keys[slot] != key && work[slot + 1] < work[slot]) slot++;
+
+        keys[slot] = key;
+        data[slot] = pack(proof, disproof);
+        work[slot] = (int) Math.min(Integer.MAX_VALUE, nodes);
+    }
+
+    /**
+     * Adds proof or disproof numbers, an infinite number stays infinite and a finite one stays below infinity.
+     *
+     * @param a A number.
+     * @param b Another number.
+     * @return The sum.
+     */
+    private static int add(int a, int b) {
+        if (a >= INFINITY || b >= INFINITY) return INFINITY;
+        return Math.min(INFINITY - 1, a + b);
+    }
+
+    /**
+     * Packs the proof and disproof numbers, a finished search never packs to 0.
+     *
+     * @param proof The proof number.
+     * @param disproof The disproof number.
+     * @return The packed numbers.
+     */
+    private static long pack(int proof, int disproof) {
+        return (long) proof << 32 | disproof;
+    }
+
+    /**
+     * Decodes the proof number of a packed entry.
+     *
+     * @param entry The packed numbers.
+     * @return The proof number.
+     */
+    private static int proof(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Decodes the disproof number of a packed entry.
+     *
+     * @param entry The packed numbers.
+     * @return The disproof number.
+     */
+    private static int disproof(long entry) {
+        return (int) entry;
+    }
+}
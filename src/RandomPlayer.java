@@ -1,10 +1,13 @@
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Represents a player that does random moves.
+ * The player keeps no state between moves, so one instance may move in several games on different threads at once.
  */
 public class RandomPlayer extends Player {
+    // One buffer per thread, reused between moves, so a move does not allocate more than its position
+    private static final ThreadLocal<int[]> MOVES = ThreadLocal.withInitial(() -> new int[0]);
+
     /**
      * Chooses a random move.
      *
@@ -13,12 +16,36 @@ public class RandomPlayer extends Player {
      */
     @Override
     public Position getMove(Board board) {
-        // Get all possible moves
-        List<Position> possibleMoves = board.getPossibleMoves();
+        int[] buffer = buffer(board.getRules().cells);
+        int count = board.getPossibleMoves(buffer);
+        return board.position(buffer[ThreadLocalRandom.current().nextInt(count)]);
+    }
+
+    /**
+     * Chooses a random move without copying the snapshot.
+     *
+     * @param snapshot The current game board on which the player can make a move.
+     * @return The chosen move represented as a {@link Position} on the board.
+     */
+    @Override
+    public Position getMove(BoardSnapshot snapshot) {
+        int[] buffer = buffer(snapshot.getRules().cells);
+        int count = snapshot.getPossibleMoves(buffer);
+        return snapshot.position(buffer[ThreadLocalRandom.current().nextInt(count)]);
+    }
 
-        // Pick a random move
-        Random r = new Random();
-        int rand = r.nextInt(possibleMoves.size());
-        return  possibleMoves.get(rand);
+    /**
+     * Returns the buffer of the current thread for the possible moves, grown to the number of cells of the board.
+     *
+     * @param cells The number of cells of the board.
+     * @return The buffer.
+     */
+    private static int[] buffer(int cells) {
+        int[] moves = MOVES.get();
+        if (moves.length < cells) {
+            moves = new int[cells];
+            MOVES.set(moves);
+        }
+        return moves;
     }
 }
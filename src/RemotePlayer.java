@@ -0,0 +1,109 @@
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Represents a player whose moves arrive from outside, for example over the network.
+ * A {@link GameSession} asks for a move with {@link #requestMove(BoardSnapshot)} and continues when the move is
+ * submitted, no thread waits in the meantime. The client only ever sees immutable snapshots of the board. A client that does not answer within the move timeout forfeits the game.
+ */
+public class RemotePlayer extends Player {
+    private static final Duration DEFAULT_MOVE_TIMEOUT = Duration.ofMinutes(1);
+
+    private final Consumer<BoardSnapshot> onTurn;
+    private Duration moveTimeout = DEFAULT_MOVE_TIMEOUT;
+    // The request that waits for a move, null when no request is open
+    private CompletableFuture<Position> waiting;
+    // A move that was submitted before it was requested, it answers the next request
+    private Position early;
+
+    /**
+     * Creates a new instance of the {@link RemotePlayer} class.
+     *
+     * @param onTurn Called with a snapshot of the board when it is this player's turn, for example to notify the client.
+     */
+    public RemotePlayer(Consumer<BoardSnapshot> onTurn) {
+        this.onTurn = onTurn;
+    }
+
+    /**
+     * Sets how long a request waits for a move before it fails, so a client that stopped answering can not hold up
+     * its game forever. In a {@link GameSession} a failed request forfeits the game. The default is one minute.
+     *
+     * @param moveTimeout The time a move may take, or null to wait forever.
+     */
+    public synchronized void setMoveTimeout(Duration moveTimeout) {
+        this.moveTimeout = moveTimeout;
+    }
+
+    /**
+     * Asks for the next move.
+     *
+     * @param snapshot The current game board on which the player can make a move, passed on to the client.
+     * @return A future that completes when the move is submitted, or fails with a
+     *         {@link java.util.concurrent.TimeoutException} when the move timeout passes first.
+     */
+    public CompletableFuture<Position> requestMove(BoardSnapshot snapshot) {
+        CompletableFuture<Position> move;
+        synchronized (this) {
+            if (early != null) {
+                move = CompletableFuture.completedFuture(early);
+                early = null;
+            }
+            else {
+                move = new CompletableFuture<>();
+                if (moveTimeout != null) move.orTimeout(moveTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                waiting = move;
+            }
+        }
+        onTurn.accept(snapshot);
+        return move;
+    }
+
+    /**
+     * Submits a move. It completes the open request, or is kept for the next request when no move is requested yet.
+     *
+     * @param move The move of the player.
+     * @return true if the move was accepted, false if a move was already submitted for this turn or the request
+     *         timed out.
+     */
+    public boolean submitMove(Position move) {
+        CompletableFuture<Position> request;
+        synchronized (this) {
+            request = waiting;
+            waiting = null;
+            if (request == null) {
+                if (early != null) return false;
+                early = move;
+                return true;
+            }
+        }
+        // Completed outside the lock, the session may continue on this thread
+        return request.complete(move);
+    }
+
+    /**
+     * Waits until a move is submitted, for use outside a {@link GameSession}.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The submitted move.
+     * @throws java.util.concurrent.CompletionException when the move timeout passes.
+     */
+    @Override
+    public Position getMove(Board board) {
+        return requestMove(board.snapshot()).join();
+    }
+
+    /**
+     * Waits until a move is submitted, for use outside a {@link GameSession}. The snapshot is passed on as it is.
+     *
+     * @param snapshot The current game board on which the player can make a move.
+     * @return The submitted move.
+     * @throws java.util.concurrent.CompletionException when the move timeout passes.
+     */
+    @Override
+    public Position getMove(BoardSnapshot snapshot) {
+        return requestMove(snapshot).join();
+    }
+}
@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rules of an (m,n,k) game: a board of m rows and n columns on which a player wins by getting
+ * k icons in a row horizontally, vertically or diagonally. Classic TicTacToe is the (3,3,3) game,
+ * Gomoku is played as (15,15,5).
+ * <p>
+ * Every window of k cells in a row is a line. The lines and the lines through each cell are precomputed,
+ * so a board can keep a count per line and only update the lines through the cell of a move.
+ * Cell {@code (row, col)} has index {@code row * cols + col}, which is also its bit in a bitboard.
+ * Instances are immutable and shared between all boards with the same rules.
+ */
+public final class Rules {
+    private static final Map<List<Integer>, Rules> CACHE = new ConcurrentHashMap<>();
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    // How far, in rows and columns, a cell counts as near an icon
+    private static final int NEAR_DISTANCE = 2;
+
+    public final int rows;
+    public final int cols;
+    public final int k;
+    public final int cells;
+    public final int words;
+    private final int[][] lineCells;
+    private final int[][] cellLines;
+    // The bits of every line, from the first word the line touches on
+    private final int[] lineWords;
+    private final long[][] lineMasks;
+    private final int[][] neighbors;
+    private final long[] full;
+    private final Position[] positions;
+
+    /**
+     * Creates the lines for the given rules.
+     *
+     * @param rows The number of rows of the board.
+     * @param cols The number of columns of the board.
+     * @param k The number of icons in a row needed to win.
+     */
+    private Rules(int rows, int cols, int k) {
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+        this.cells = rows * cols;
+        this.words = (cells + 63) >>> 6;
+        this.full = new long[words];
+        this.positions = new Position[cells];
+
+        for (int i = 0; i < cells; i++) {
+            full[i >>> 6] |= 1L << i;
+            positions[i] = new Position(i / cols, i % cols);
+        }
+
+        // Every window of k cells in each direction is a line
+        List<int[]> lines = new ArrayList<>();
+        for (int[] dir : DIRECTIONS) {
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int endRow = row + (k - 1) * dir[0];
+                    int endCol = col + (k - 1) * dir[1];
+                    if (endRow >= rows || endCol < 0 || endCol >= cols) continue;
+
+                    int[] line = new int[k];
+                    for (int i = 0; i < k; i++) line[i] = (row + i * dir[0]) * cols + col + i * dir[1];
+                    lines.add(line);
+                }
+            }
+
+            // With k = 1 every direction gives the same lines
+            if (k == 1) break;
+        }
+        this.lineCells = lines.toArray(new int[0][]);
+
+        this.lineWords = new int[lineCells.length];
+        this.lineMasks = new long[lineCells.length][];
+        for (int line = 0; line < lineCells.length; line++) {
+            // The cells of a line go up in every direction
+            int[] members = lineCells[line];
+            int first = members[0] >>> 6;
+            int last = members[members.length - 1] >>> 6;
+            lineWords[line] = first;
+            lineMasks[line] = new long[last - first + 1];
+            for (int cell : members) lineMasks[line][(cell >>> 6) - first] |= 1L << cell;
+        }
+
+        int[] count = new int[cells];
+        for (int[] line : lineCells) for (int cell : line) count[cell]++;
+        this.cellLines = new int[cells][];
+        for (int i = 0; i < cells; i++) cellLines[i] = new int[count[i]];
+        for (int line = 0; line < lineCells.length; line++)
+            for (int cell : lineCells[line]) cellLines[cell][--count[cell]] = line;
+
+        this.neighbors = new int[cells][];
+        for (int i = 0; i < cells; i++) {
+            int row = i / cols;
+            int col = i % cols;
+            List<Integer> near = new ArrayList<>();
+            for (int r = Math.max(0, row - NEAR_DISTANCE); r <= Math.min(rows - 1, row + NEAR_DISTANCE); r++)
+                for (int c = Math.max(0, col - NEAR_DISTANCE); c <= Math.min(cols - 1, col + NEAR_DISTANCE); c++)
+                    if (r != row || c != col) near.add(r * cols + c);
+            neighbors[i] = near.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Returns the shared rules of an (m,n,k) game.
+     *
+     * @param rows The number of rows of the board.
+     * @param cols The number of columns of the board.
+     * @param k The number of icons in a row needed to win.
+     * @return The rules.
+     */
+    public static Rules of(int rows, int cols, int k) {
+        if (rows <= 0 || cols <= 0) throw new IllegalArgumentException("Size must be positive.");
+        if (k <= 0 || k > Math.max(rows, cols)) throw new IllegalArgumentException("k does not fit on the board.");
+        return CACHE.computeIfAbsent(List.of(rows, cols, k), key -> new Rules(rows, cols, k));
+    }
+
+    /**
+     * Returns the rules of classic TicTacToe: a square board on which a full row, column or diagonal wins.
+     *
+     * @param size The size of the board (number of rows and columns).
+     * @return The rules.
+     */
+    public static Rules square(int size) {
+        return of(size, size, size);
+    }
+
+    /**
+     * Checks if the board has as many rows as columns.
+     *
+     * @return true if the board is square otherwise false.
+     */
+    public boolean isSquare() {
+        return rows == cols;
+    }
+
+    /**
+     * Returns the number of lines.
+     *
+     * @return The number of lines.
+     */
+    public int lines() {
+        return lineCells.length;
+    }
+
+    /**
+     * Returns the cells of a line. The returned array must not be modified.
+     *
+     * @param line The index of the line.
+     * @return The cell indices of the line.
+     */
+    public int[] cellsOf(int line) {
+        return lineCells[line];
+    }
+
+    /**
+     * Counts the icons of a player in a line, with one population count per word the line touches.
+     *
+     * @param bits The bitboard of the player.
+     * @param line The index of the line.
+     * @return The number of cells of the line in the bitboard.
+     */
+    public int count(long[] bits, int line) {
+        long[] masks = lineMasks[line];
+        int first = lineWords[line];
+        int count = 0;
+        for (int w = 0; w < masks.length; w++) count += Long.bitCount(bits[first + w] & masks[w]);
+        return count;
+    }
+
+    /**
+     * Returns the lines through a cell. The returned array must not be modified.
+     *
+     * @param cell The index of the cell.
+     * @return The indices of the lines through the cell.
+     */
+    public int[] linesThrough(int cell) {
+        return cellLines[cell];
+    }
+
+    /**
+     * Returns the cells near a cell: at most two rows and two columns away, without the cell itself.
+     * The returned array must not be modified.
+     *
+     * @param cell The index of the cell.
+     * @return The indices of the neighboring cells.
+     */
+    public int[] neighbors(int cell) {
+        return neighbors[cell];
+    }
+
+    /**
+     * Checks if the icon in a cell is part of k in a row, only looking at the cells around it.
+     *
+     * @param bits The bitboard of the player that owns the cell.
+     * @param cell The index of the cell, usually the last move.
+     * @return true if the cell completes a line otherwise false.
+     */
+    public boolean isWin(long[] bits, int cell) {
+        return isWin(bits, 0, cell);
+    }
+
+    /**
+     * Checks if the icon in a cell is part of k in a row, for a bitboard stored among others in one array.
+     *
+     * @param bits The array holding the bitboard of the player that owns the cell.
+     * @param offset The index of the first word of the bitboard in the array.
+     * @param cell The index of the cell, usually the last move.
+     * @return true if the cell completes a line otherwise false.
+     */
+    public boolean isWin(long[] bits, int offset, int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+
+        for (int[] dir : DIRECTIONS) {
+            int count = 1 + run(bits, offset, row, col, dir[0], dir[1])
+                    + run(bits, offset, row, col, -dir[0], -dir[1]);
+            if (count >= k) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the mask of all cells on the board.
+     *
+     * @param word The index of the word.
+     * @return The bits of all cells in the word.
+     */
+    public long full(int word) {
+        return full[word];
+    }
+
+    /**
+     * Returns the interned position of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The position of the cell.
+     */
+    public Position position(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Counts the icons in a row next to a cell, in one direction.
+     *
+     * @param bits The array holding the bitboard of the player.
+     * @param offset The index of the first word of the bitboard in the array.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param dRow The step in rows.
+     * @param dCol The step in columns.
+     * @return The number of consecutive icons, at most k - 1.
+     */
+    private int run(long[] bits, int offset, int row, int col, int dRow, int dCol) {
+        int count = 0;
+        for (int r = row + dRow, c = col + dCol; count < k - 1; r += dRow, c += dCol, count++) {
+            if (r < 0 || r >= rows || c < 0 || c >= cols) break;
+            int index = r * cols + c;
+            if ((bits[offset + (index >>> 6)] & (1L << index)) == 0) break;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + rows + "," + cols + "," + k + ")";
+    }
+}
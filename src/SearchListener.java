@@ -0,0 +1,17 @@
+/**
+ * Receives the statistics of every move an {@link AIPlayer} computes, for monitoring and finding slow moves.
+ * The listener is called on the thread that called {@link AIPlayer#getMove(Board)}, so it should be quick.
+ */
+public interface SearchListener {
+    /**
+     * Ignores all searches. A player with this listener does not collect statistics at all.
+     */
+    SearchListener NONE = stats -> { };
+
+    /**
+     * Called after a move has been computed.
+     *
+     * @param stats The statistics of the search.
+     */
+    void searchCompleted(SearchStats stats);
+}
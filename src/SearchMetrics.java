@@ -0,0 +1,197 @@
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects the statistics of many searches: counters, a latency histogram and the time spent per depth.
+ * One instance can be shared by any number of players on any number of threads, the counters do not lock.
+ * Register it with {@link #register(String)} to read it over JMX, and set a slow threshold to log outliers.
+ */
+public class SearchMetrics implements SearchListener, SearchMetricsMBean {
+    private static final Logger LOGGER = Logger.getLogger(SearchMetrics.class.getName());
+    // Bucket i counts the searches that took from 2^(i-1) up to 2^i microseconds
+    private static final int BUCKETS = 40;
+    private static final int MAX_DEPTH = 64;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder terminals = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder depths = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray depthNanos = new AtomicLongArray(MAX_DEPTH);
+    private final AtomicLongArray depthCounts = new AtomicLongArray(MAX_DEPTH);
+    private volatile long slowNanos = Long.MAX_VALUE;
+
+    @Override
+    public void searchCompleted(SearchStats stats) {
+        searches.increment();
+        nodes.add(stats.nodes());
+        terminals.add(stats.terminals());
+        cutoffs.add(stats.cutoffs());
+        nanos.add(stats.nanos());
+        depths.add(stats.depth());
+        maxNanos.accumulateAndGet(stats.nanos(), Math::max);
+        latencies.incrementAndGet(bucket(stats.nanos()));
+
+        long[] iterations = stats.iterationNanos();
+        for (int i = 0; i < iterations.length && i < MAX_DEPTH; i++) {
+            depthNanos.addAndGet(i, iterations[i]);
+            depthCounts.incrementAndGet(i);
+        }
+
+        if (stats.nanos() > slowNanos) {
+            LOGGER.warning(() -> String.format("Slow move by %s: %d ms, depth %d, %d nodes, %d moves",
+                    stats.player(), stats.nanos() / 1_000_000, stats.depth(), stats.nodes(), stats.moves()));
+        }
+    }
+
+    /**
+     * Logs every search that takes longer than a threshold as a warning.
+     *
+     * @param threshold The slowest search that is not logged, or null to log nothing.
+     */
+    public void setSlowThreshold(Duration threshold) {
+        this.slowNanos = threshold == null ? Long.MAX_VALUE : threshold.toNanos();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as {@code TicTacToe:type=SearchMetrics,name=<name>}.
+     *
+     * @param name The name that tells the metrics apart, for example the icon of the player.
+     * @throws IllegalStateException when the name is already registered.
+     */
+    public void register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("TicTacToe:type=SearchMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Can not register search metrics " + name, e);
+        }
+    }
+
+    /**
+     * Returns the mean time of the iterations at a depth, over all time budgeted searches.
+     *
+     * @param depth The depth of the iteration, from 0.
+     * @return The mean time in milliseconds, or 0 if no search finished that depth.
+     */
+    public double getMeanMillis(int depth) {
+        if (depth >= MAX_DEPTH) return 0;
+        long count = depthCounts.get(depth);
+        return count == 0 ? 0 : depthNanos.get(depth) / 1e6 / count;
+    }
+
+    /**
+     * Estimates a percentile of the search times from the histogram.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The upper bound of the histogram bucket the percentile falls in, at most the maximum, in milliseconds.
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts[i] = latencies.get(i);
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) return Math.min((1L << i) / 1000.0, getMaxMillis());
+        }
+        return getMaxMillis();
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getTerminals() {
+        return terminals.sum();
+    }
+
+    @Override
+    public long getCutoffs() {
+        return cutoffs.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        return nodes.sum() * 1e9 / Math.max(1, nanos.sum());
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return nanos.sum() / 1e6 / Math.max(1, searches.sum());
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getPercentileMillis(99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getMeanDepth() {
+        return (double) depths.sum() / Math.max(1, searches.sum());
+    }
+
+    @Override
+    public void reset() {
+        searches.reset();
+        nodes.reset();
+        terminals.reset();
+        cutoffs.reset();
+        nanos.reset();
+        depths.reset();
+        maxNanos.set(0);
+        for (int i = 0; i < BUCKETS; i++) latencies.set(i, 0);
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            depthNanos.set(i, 0);
+            depthCounts.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d searches, %.0f nodes/s, mean %.2f ms, median %.2f ms, p99 %.2f ms, max %.2f ms, depth %.1f",
+                getSearches(), getNodesPerSecond(), getMeanMillis(), getMedianMillis(), getP99Millis(),
+                getMaxMillis(), getMeanDepth());
+    }
+
+    /**
+     * Returns the histogram bucket of a search time.
+     *
+     * @param nanos The search time in nanoseconds.
+     * @return The index of the bucket.
+     */
+    private static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+}
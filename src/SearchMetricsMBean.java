@@ -0,0 +1,26 @@
+/**
+ * The JMX view of {@link SearchMetrics}, for JConsole, VisualVM or any other JMX client.
+ */
+public interface SearchMetricsMBean {
+    long getSearches();
+
+    long getNodes();
+
+    long getTerminals();
+
+    long getCutoffs();
+
+    double getNodesPerSecond();
+
+    double getMeanMillis();
+
+    double getMedianMillis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getMeanDepth();
+
+    void reset();
+}
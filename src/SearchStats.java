@@ -0,0 +1,37 @@
+/**
+ * The statistics of one call to {@link AIPlayer#getMove(Board)}.
+ * Terminals and cutoffs are only counted by the alpha-beta searches, the other searches report 0.
+ *
+ * @param player The icon of the player that searched.
+ * @param move The chosen move.
+ * @param moves The number of possible moves at the root.
+ * @param depth The depth of the deepest finished search, 0 if the move came from a {@link Tablebase}.
+ * @param nodes The number of visited positions.
+ * @param terminals The number of visited positions where the game was over.
+ * @param cutoffs The number of beta cutoffs.
+ * @param tableCutoffs The number of positions answered by the transposition table.
+ * @param nanos The time the move took in nanoseconds.
+ * @param iterationNanos The time each finished iteration took, one per depth for a time budgeted search.
+ */
+public record SearchStats(Icon player, Position move, int moves, int depth, long nodes, long terminals,
+                          long cutoffs, long tableCutoffs, long nanos, long[] iterationNanos) {
+    /**
+     * Returns the number of visited positions per second.
+     *
+     * @return The search speed.
+     */
+    public double nodesPerSecond() {
+        return nodes * 1e9 / Math.max(1, nanos);
+    }
+
+    /**
+     * Returns the effective branching factor, the number of moves per position that a search of the same depth
+     * and size without pruning would have searched.
+     *
+     * @return The effective branching factor, or 0 if nothing was searched.
+     */
+    public double branchingFactor() {
+        if (depth == 0 || nodes == 0) return 0;
+        return Math.pow(nodes, 1.0 / depth);
+    }
+}
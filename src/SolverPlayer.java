@@ -0,0 +1,63 @@
+/**
+ * Represents a player that plays proven moves from a {@link ProofNumberSolver}. A position the solver proves as a win
+ * or a draw is played with the move that keeps it, without a search. Positions that are lost or can not be solved
+ * within the node budget are left to another player.
+ */
+public class SolverPlayer extends Player {
+    private final ProofNumberSolver solver;
+    private final Player fallback;
+    private ProofNumberSolver.Result lastResult;
+
+    /**
+     * Creates a new instance of the {@link SolverPlayer} class that falls back on an {@link AIPlayer} with ply 4.
+     *
+     * @param solver The solver, it keeps its table between moves.
+     */
+    public SolverPlayer(ProofNumberSolver solver) {
+        this(solver, new AIPlayer(4));
+    }
+
+    /**
+     * Creates a new instance of the {@link SolverPlayer} class.
+     *
+     * @param solver The solver, it keeps its table between moves.
+     * @param fallback The player that moves when the solver has no move.
+     */
+    public SolverPlayer(ProofNumberSolver solver, Player fallback) {
+        this.solver = solver;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Sets the game piece (icon) for this player and its fallback.
+     *
+     * @param icon The game piece (icon) to be associated with this player.
+     */
+    @Override
+    public void setIcon(Icon icon) {
+        super.setIcon(icon);
+        fallback.setIcon(icon);
+    }
+
+    /**
+     * Plays the proven move, or the move of the fallback player if there is none.
+     *
+     * @param board The current game board on which the player can make a move.
+     * @return The chosen move represented as a {@link Position} on the board.
+     */
+    @Override
+    public Position getMove(Board board) {
+        lastResult = solver.solve(board, getIcon());
+        if (lastResult.move() != null) return lastResult.move();
+        return fallback.getMove(board);
+    }
+
+    /**
+     * Returns what the solver found for the last move.
+     *
+     * @return The result of the solver, or null before the first move.
+     */
+    public ProofNumberSolver.Result getLastResult() {
+        return lastResult;
+    }
+}
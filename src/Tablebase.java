@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A solved game: the perfect-play outcome and best move of every reachable position, stored in a file
+ * built by {@link TablebaseBuilder}. The file is memory-mapped on the first probe, so opening it costs nothing.
+ * <p>
+ * Positions are stored from the view of the player to move: every cell is a base-3 digit, 0 for empty,
+ * 1 for the player to move and 2 for the opponent. The digits form an index into a byte array, of the eight
+ * (or four) symmetric boards only the one with the smallest index is stored. Each byte holds the outcome
+ * in bits 5-6 and the best move plus one, in the orientation of that smallest board, in bits 0-4.
+ * A byte of 0 means the position was never reached, for example because the game was already over.
+ */
+public class Tablebase {
+    static final int MAGIC = 0x54545442;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 5 * Integer.BYTES;
+    /** The largest number of cells a tablebase supports, 3^19 still fits in an int. */
+    static final int MAX_CELLS = 19;
+
+    private final Path path;
+    private volatile MappedByteBuffer data;
+    private Rules rules;
+    private int[] powers;
+
+    /**
+     * The outcome of a position with perfect play, for the player to move.
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * The result of a probe.
+     *
+     * @param outcome The outcome of the position with perfect play.
+     * @param move The best move, the quickest win or the slowest loss.
+     */
+    public record Entry(Outcome outcome, Position move) { }
+
+    /**
+     * Creates a new instance of the {@link Tablebase} class.
+     *
+     * @param path The file the tablebase is stored in.
+     */
+    private Tablebase(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens a tablebase file. The file is only read on the first probe.
+     *
+     * @param path The file the tablebase is stored in.
+     * @return The tablebase.
+     */
+    public static Tablebase open(Path path) {
+        return new Tablebase(path);
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param board The board to look up.
+     * @param player The player to move.
+     * @return The outcome and best move, or null if the position is not in the tablebase.
+     * @throws UncheckedIOException when the file can not be read.
+     */
+    public Entry probe(Board board, Icon player) {
+        MappedByteBuffer data = load();
+        if (board.getRules() != rules) return null;
+
+        Zobrist zobrist = board.getZobrist();
+        int index = Integer.MAX_VALUE;
+        int symmetry = 0;
+        for (int s = 0; s < zobrist.symmetries; s++) {
+            int candidate = index(board, player, zobrist, s, powers);
+            if (candidate < index) {
+                index = candidate;
+                symmetry = s;
+            }
+        }
+
+        int entry = data.get(HEADER_BYTES + index) & 0xFF;
+        if (entry == 0) return null;
+
+        Outcome outcome = Outcome.values()[(entry >>> 5) - 1];
+        Position move = board.position(zobrist.unmap(symmetry, (entry & 0x1F) - 1));
+        return new Entry(outcome, move);
+    }
+
+    /**
+     * Returns the rules of the solved game, reading the file if that did not happen yet.
+     *
+     * @return The rules of the tablebase.
+     * @throws UncheckedIOException when the file can not be read.
+     */
+    public Rules getRules() {
+        load();
+        return rules;
+    }
+
+    /**
+     * Computes the index of a board under a symmetry, from the view of the player to move.
+     *
+     * @param board The board.
+     * @param player The player to move.
+     * @param zobrist The symmetry tables of the board.
+     * @param symmetry The index of the symmetry.
+     * @param powers The powers of 3, one per cell.
+     * @return The index of the transformed board.
+     */
+    static int index(Board board, Icon player, Zobrist zobrist, int symmetry, int[] powers) {
+        int index = 0;
+        for (int cell = 0; cell < powers.length; cell++) {
+            Icon icon = board.get(cell);
+            if (icon == Icon.NONE) continue;
+            index += (icon == player ? 1 : 2) * powers[zobrist.map(symmetry, cell)];
+        }
+        return index;
+    }
+
+    /**
+     * Returns the powers of 3 for every cell of a board.
+     *
+     * @param rules The rules of the board.
+     * @return The powers of 3.
+     */
+    static int[] powers(Rules rules) {
+        if (rules.cells > MAX_CELLS) throw new IllegalArgumentException("Board is too big for a tablebase.");
+        int[] powers = new int[rules.cells];
+        int power = 1;
+        for (int i = 0; i < powers.length; i++) {
+            powers[i] = power;
+            power *= 3;
+        }
+        return powers;
+    }
+
+    /**
+     * Maps the file into memory on the first call.
+     *
+     * @return The mapped file.
+     */
+    private MappedByteBuffer load() {
+        MappedByteBuffer mapped = data;
+        if (mapped != null) return mapped;
+
+        synchronized (this) {
+            if (data != null) return data;
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Can not read tablebase " + path, e);
+            }
+
+            ByteBuffer header = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IllegalArgumentException(path + " is not a tablebase.");
+            rules = Rules.of(header.getInt(), header.getInt(), header.getInt());
+            powers = powers(rules);
+            if (mapped.capacity() != HEADER_BYTES + 3L * powers[powers.length - 1])
+                throw new IllegalArgumentException(path + " is truncated.");
+
+            data = mapped;
+            return mapped;
+        }
+    }
+}
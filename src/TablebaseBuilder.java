@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Solves every reachable position of a game by exhaustive search and writes the result as a {@link Tablebase}.
+ * Usage: {@code java TablebaseBuilder <rows> <cols> <k> <file>}, for example {@code 4 4 4 4x4.tb}.
+ * A 3x3 board takes a blink, a 4x4 board a few seconds and a 43 MB file.
+ */
+public class TablebaseBuilder {
+    // Scores of a solved position, a win in d ply scores DISTANCE - d and a loss the negative
+    private static final int DISTANCE = 64;
+
+    private final Board board;
+    private final Zobrist zobrist;
+    private final int[] powers;
+    private final byte[] entries;
+    private final byte[] scores;
+    private final int[][] moveBuffers;
+    // The index of the board under every symmetry, with X to move and with O to move
+    private final int[] xIndexes;
+    private final int[] oIndexes;
+    private int solved;
+
+    /**
+     * Creates a new instance of the {@link TablebaseBuilder} class.
+     *
+     * @param rules The rules of the game to solve.
+     */
+    public TablebaseBuilder(Rules rules) {
+        this.board = new Board(rules);
+        this.zobrist = board.getZobrist();
+        this.powers = Tablebase.powers(rules);
+        int size = 3 * powers[powers.length - 1];
+        this.entries = new byte[size];
+        this.scores = new byte[size];
+        this.moveBuffers = new int[rules.cells + 1][rules.cells];
+        this.xIndexes = new int[zobrist.symmetries];
+        this.oIndexes = new int[zobrist.symmetries];
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: java TablebaseBuilder <rows> <cols> <k> <file>");
+            System.exit(2);
+        }
+
+        Rules rules = Rules.of(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        long start = System.nanoTime();
+        TablebaseBuilder builder = new TablebaseBuilder(rules);
+        int score = builder.solve();
+        builder.write(Path.of(args[3]));
+
+        String outcome = score > 0 ? "first player wins" : score < 0 ? "second player wins" : "draw";
+        System.out.printf("%s: %s, %d positions solved in %d ms%n",
+                rules, outcome, builder.solved, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Solves the game from the empty board.
+     *
+     * @return The score of the empty board for the first player.
+     */
+    public int solve() {
+        return solve(Icon.X, 0);
+    }
+
+    /**
+     * Writes the solved positions to a file, replacing it if it exists.
+     *
+     * @param path The file to write.
+     * @throws IOException when the file can not be written.
+     */
+    public void write(Path path) throws IOException {
+        Rules rules = board.getRules();
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+        header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(rules.rows).putInt(rules.cols).putInt(rules.k);
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(entries);
+            while (body.hasRemaining()) channel.write(body);
+        }
+    }
+
+    /**
+     * Solves a position, looking it up first in case a symmetric position was solved before.
+     *
+     * @param player The player to move.
+     * @param depth The number of moves played, selects the move buffer.
+     * @return The score of the position for the player to move.
+     */
+    private int solve(Icon player, int depth) {
+        int[] indexes = player == Icon.X ? xIndexes : oIndexes;
+        int index = Integer.MAX_VALUE;
+        int symmetry = 0;
+        for (int s = 0; s < indexes.length; s++) {
+            if (indexes[s] < index) {
+                index = indexes[s];
+                symmetry = s;
+            }
+        }
+        if (entries[index] != 0) return scores[index];
+
+        Icon opponent = player == Icon.X ? Icon.O : Icon.X;
+        int[] moves = moveBuffers[depth];
+        int count = board.getPossibleMoves(moves);
+        int best = Integer.MIN_VALUE;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            play(move, player, 1);
+
+            int score;
+            if (board.isWinner(player)) score = DISTANCE - 1;
+            else if (board.isFull()) score = 0;
+            else {
+                // One ply further away from the end of the game
+                score = -solve(opponent, depth + 1);
+                if (score > 0) score--;
+                else if (score < 0) score++;
+            }
+
+            play(move, player, -1);
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+        }
+
+        Tablebase.Outcome outcome = best > 0 ? Tablebase.Outcome.WIN
+                : best < 0 ? Tablebase.Outcome.LOSS : Tablebase.Outcome.DRAW;
+        entries[index] = (byte) ((outcome.ordinal() + 1) << 5 | zobrist.map(symmetry, bestMove) + 1);
+        scores[index] = (byte) best;
+        solved++;
+        return best;
+    }
+
+    /**
+     * Plays or takes back a move, keeping the indexes of the board up to date.
+     *
+     * @param cell The index of the cell.
+     * @param player The player that makes the move.
+     * @param sign 1 to play the move, -1 to take it back.
+     */
+    private void play(int cell, Icon player, int sign) {
+        board.set(cell, sign > 0 ? player : Icon.NONE);
+        // From the view of X a cell of X is digit 1, from the view of O it is digit 2, and the other way around
+        int xDigit = player == Icon.X ? 1 : 2;
+        for (int s = 0; s < xIndexes.length; s++) {
+            int power = powers[zobrist.map(s, cell)];
+            xIndexes[s] += sign * xDigit * power;
+            oIndexes[s] += sign * (3 - xDigit) * power;
+        }
+    }
+}
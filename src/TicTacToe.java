@@ -3,7 +3,7 @@
  * between two players, X and O, on a game board.
  */
 public class TicTacToe {
-    private final Board board;
+    private final GameRunner runner;
 
     /**
      * Initializes a Tic-Tac-Toe game with a default board size of 3x3.
@@ -18,67 +18,27 @@ public class TicTacToe {
      * @param size The size of the game board (number of rows and columns).
      */
     public TicTacToe(int size) {
-        board = new Board(size);
+        this(Rules.square(size));
     }
 
     /**
-     * Starts the Tic-Tac-Toe game between the given X and O players.
+     * Initializes a game with custom rules, for example Gomoku on a 15x15 board with five in a row.
      *
-     * @param xPlayer The X player.
-     * @param oPlayer The O player.
+     * @param rules The rules of the game.
      */
-    public void playGame(Player xPlayer, Player oPlayer) {
-        // Set player icons
-        xPlayer.setIcon(Icon.X);
-        oPlayer.setIcon(Icon.O);
-
-        // Game loop
-        boolean loopGame = true;
-        while (loopGame) {
-            // Loop trough players
-            Player[] players = new Player[]{xPlayer, oPlayer};
-            for (Player player : players) {
-                // Start player turn
-                printBoardMsg("\n" + player.getIcon() + "'s turn");
-
-                // Set move, if move is illegal opponent wins
-                try {
-                    board.setMove(player.getMove(board.copy()), player.getIcon());
-                }
-                catch (IllegalMoveException e) {
-                    // End game
-                    printBoardMsg("\n" + player.getIcon().opponent() + " won!");
-                    loopGame = false;
-                    break;
-                }
-
-                // Check for winner
-                if (board.isWinner(player.getIcon())) {
-                    // End game
-                    printBoardMsg("\n" + player.getIcon() + " won!");
-                    loopGame = false;
-                    break;
-                }
-
-                // Check for draw
-                if (board.isFull()) {
-                    // End game
-                    printBoardMsg("\nIts a draw");
-                    loopGame = false;
-                    break;
-                }
-            }
-        }
+    public TicTacToe(Rules rules) {
+        runner = new GameRunner(rules);
+        runner.setObserver(new ConsoleObserver());
     }
 
     /**
-     * Prints a message along with the current game board.
+     * Starts the Tic-Tac-Toe game between the given X and O players and prints it to the console.
      *
-     * @param msg The message to be displayed.
+     * @param xPlayer The X player.
+     * @param oPlayer The O player.
+     * @return The winner, the moves and the time taken for each move.
      */
-    private void printBoardMsg(String msg) {
-        System.out.println();
-        System.out.println(board);
-        System.out.println(msg);
+    public GameResult playGame(Player xPlayer, Player oPlayer) {
+        return runner.play(xPlayer, oPlayer);
     }
 }
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Plays many games between two kinds of players in parallel and counts the results.
+ * Every thread of the pool gets its own pair of players from the factories and keeps them for all of its games,
+ * so players do not have to be thread-safe and caches such as transposition tables carry over between games.
+ * <p>
+ * Usage: {@code java Tournament [games] [size] [ply]}, plays an {@link AIPlayer} as X against a {@link RandomPlayer}.
+ */
+public class Tournament {
+    private final Rules rules;
+    private final Supplier<? extends Player> xFactory;
+    private final Supplier<? extends Player> oFactory;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private GameRecordWriter recorder;
+
+    /**
+     * The combined results of all games.
+     *
+     * @param games The number of games played.
+     * @param xWins The number of games won by X.
+     * @param oWins The number of games won by O.
+     * @param draws The number of draws.
+     * @param forfeits The number of games that ended with an illegal move.
+     * @param moves The number of moves played in all games.
+     * @param elapsedNanos The wall-clock time of the tournament in nanoseconds.
+     */
+    public record Result(long games, long xWins, long oWins, long draws, long forfeits, long moves, long elapsedNanos) {
+        /**
+         * Returns the number of games played per second of wall-clock time.
+         *
+         * @return The throughput of the tournament.
+         */
+        public double gamesPerSecond() {
+            return games * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games: X won %d, O won %d, %d draws (%d forfeits), %.1f moves per game, %.0f games/s",
+                    games, xWins, oWins, draws, forfeits, (double) moves / Math.max(1, games), gamesPerSecond());
+        }
+    }
+
+    /**
+     * Creates a new instance of the {@link Tournament} class.
+     *
+     * @param rules The rules of the game.
+     * @param xFactory Creates the X player, called once per thread.
+     * @param oFactory Creates the O player, called once per thread.
+     */
+    public Tournament(Rules rules, Supplier<? extends Player> xFactory, Supplier<? extends Player> oFactory) {
+        this.rules = rules;
+        this.xFactory = xFactory;
+        this.oFactory = oFactory;
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int ply = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        Tournament tournament = new Tournament(Rules.square(size), () -> new AIPlayer(ply), RandomPlayer::new);
+        System.out.println(tournament.play(games));
+    }
+
+    /**
+     * Plays a number of games, spread over the threads of the pool.
+     *
+     * @param games The number of games to play.
+     * @return The combined results.
+     */
+    public Result play(int games) {
+        AtomicInteger next = new AtomicInteger();
+        LongAdder xWins = new LongAdder();
+        LongAdder oWins = new LongAdder();
+        LongAdder draws = new LongAdder();
+        LongAdder forfeits = new LongAdder();
+        LongAdder moves = new LongAdder();
+
+        long start = System.nanoTime();
+        int workers = Math.min(games, pool.getParallelism());
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(pool.submit(() -> {
+                GameRunner runner = new GameRunner(rules);
+                Player xPlayer = xFactory.get();
+                Player oPlayer = oFactory.get();
+
+                // Take games from the shared counter until all are played
+                while (next.getAndIncrement() < games) {
+                    GameResult result = runner.play(xPlayer, oPlayer);
+                    if (result.winner() == Icon.X) xWins.increment();
+                    else if (result.winner() == Icon.O) oWins.increment();
+                    else draws.increment();
+                    if (result.forfeit()) forfeits.increment();
+                    moves.add(result.moves().size());
+                    if (recorder != null) record(result);
+                }
+            }));
+        }
+
+        for (ForkJoinTask<?> task : tasks) task.join();
+        return new Result(games, xWins.sum(), oWins.sum(), draws.sum(), forfeits.sum(), moves.sum(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Sets a writer that records every game, or null to record nothing. The writer is not closed by the tournament.
+     *
+     * @param recorder The writer, it must use the rules of the tournament.
+     */
+    public void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Records a game.
+     *
+     * @param result The game to record.
+     * @throws UncheckedIOException when the game can not be written.
+     */
+    private void record(GameResult result) {
+        try {
+            recorder.write(result);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sets the pool the games are played on. The common pool is used by default.
+     *
+     * @param pool The pool to play the games on.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, indexed by a symmetry-canonical Zobrist key.
+ * Every slot holds one entry. A new entry replaces an entry of another position if it was searched at least as deep
+ * (depth-preferred replacement), or if the old entry is from an earlier search, so the table never grows beyond
+ * its initial memory and deep entries of old games or moves do not block their slots forever.
+ * Call {@link #newSearch()} before every search to age the entries of the searches before it.
+ * <p>
+ * The table can be shared by threads without locking. The key is stored XOR-ed with the data,
+ * so a slot that was torn by concurrent writes simply fails to match. The counters are approximate in that case.
+ */
+public class TranspositionTable {
+    /** The score is exact. */
+    public static final int EXACT = 1;
+    /** The score is a lower bound, the search failed high. */
+    public static final int LOWER = 2;
+    /** The score is an upper bound, the search failed low. */
+    public static final int UPPER = 3;
+    /** The deepest remaining depth an entry can hold. */
+    public static final int MAX_DEPTH = 255;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    // The generation shares the low byte with the bound, it wraps around after 64 searches
+    private static final int GENERATIONS = 64;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private long hits;
+    private long misses;
+    private long overwrites;
+    private volatile int generation;
+
+    /**
+     * Creates a new instance of the {@link TranspositionTable} class.
+     *
+     * @param megabytes The maximum amount of memory the table may use, rounded down to a power of two entries.
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Starts a new search: the entries stored so far become old, and any entry of the new search may replace them.
+     */
+    public void newSearch() {
+        generation = (generation + 1) % GENERATIONS;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The key of the position.
+     * @return The packed entry, or 0 if the position is not in the table.
+     */
+    public long probe(long key) {
+        int slot = slot(key);
+        long entry = data[slot];
+        if (entry != 0 && (keys[slot] ^ entry) == key) {
+            hits++;
+            return entry;
+        }
+
+        misses++;
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search, unless the slot holds a deeper search of another position from the same search.
+     *
+     * @param key The key of the position.
+     * @param depth The remaining depth the position was searched with, from 0 to {@link #MAX_DEPTH}.
+     * @param score The score of the position.
+     * @param bound The kind of score, {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     * @param move The cell index of the best move in the canonical orientation, or -1 if there is none.
+     * @throws IllegalArgumentException when the depth does not fit in an entry.
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        if (depth < 0 || depth > MAX_DEPTH) throw new IllegalArgumentException("Depth out of range: " + depth);
+
+        int slot = slot(key);
+        long old = data[slot];
+        int current = generation;
+        boolean same = (keys[slot] ^ old) == key;
+        if (old != 0 && !same) {
+            if (depth(old) > depth && generation(old) == current) return;
+            overwrites++;
+        }
+
+        long entry = ((long) score << 32) | ((long) (move + 1) & 0xFFFF) << 16 | depth << 8 | current << 2 | bound;
+        data[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        hits = misses = overwrites = 0;
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     *
+     * @return The capacity of the table.
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Returns how often a probe found its position.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns how often a probe did not find its position.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns how often an entry replaced an entry of another position.
+     *
+     * @return The number of overwrites.
+     */
+    public long getOverwrites() {
+        return overwrites;
+    }
+
+    /**
+     * Extracts the score from a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The score.
+     */
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * Extracts the depth from a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The remaining depth of the search.
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    /**
+     * Extracts the kind of score from a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public static int bound(long entry) {
+        return (int) entry & 3;
+    }
+
+    /**
+     * Extracts the generation of the search that stored a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The generation, see {@link #newSearch()}.
+     */
+    private static int generation(long entry) {
+        return (int) entry >>> 2 & GENERATIONS - 1;
+    }
+
+    /**
+     * Extracts the best move from a packed entry.
+     *
+     * @param entry The packed entry.
+     * @return The cell index of the best move in the canonical orientation, or -1 if there is none.
+     */
+    public static int move(long entry) {
+        return ((int) (entry >>> 16) & 0xFFFF) - 1;
+    }
+
+    /**
+     * Returns the slot of a key.
+     *
+     * @param key The key of the position.
+     * @return The index of the slot.
+     */
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist keys and the rotations and reflections of a board: eight for a square board, four otherwise.
+ * A {@link Board} keeps one hash per symmetry, the smallest of them identifies all symmetric positions at once.
+ * The keys are generated from a fixed seed, so hashes are the same in every run.
+ * Instances are immutable and shared between all boards of the same dimensions.
+ */
+public final class Zobrist {
+    /** The key that is mixed into a hash when O is the player to move. */
+    public static final long SIDE = 0x9E3779B97F4A7C15L;
+
+    private static final Map<List<Integer>, Zobrist> CACHE = new ConcurrentHashMap<>();
+
+    public final int rows;
+    public final int cols;
+    public final int symmetries;
+    private final long[] xKeys;
+    private final long[] oKeys;
+    private final int[][] map;
+    private final int[][] unmap;
+
+    /**
+     * Creates the keys and symmetry tables for a board of the given dimensions.
+     *
+     * @param rows The number of rows of the board.
+     * @param cols The number of columns of the board.
+     */
+    private Zobrist(int rows, int cols) {
+        int cells = rows * cols;
+        this.rows = rows;
+        this.cols = cols;
+        this.symmetries = rows == cols ? 8 : 4;
+        this.xKeys = new long[cells];
+        this.oKeys = new long[cells];
+        this.map = new int[symmetries][cells];
+        this.unmap = new int[symmetries][cells];
+
+        SplittableRandom random = new SplittableRandom(31L * rows + cols);
+        for (int i = 0; i < cells; i++) {
+            xKeys[i] = random.nextLong();
+            oKeys[i] = random.nextLong();
+        }
+
+        int lastRow = rows - 1;
+        int lastCol = cols - 1;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int cell = i * cols + j;
+                // Identity, half turn and the two mirrors work on every rectangle
+                map[0][cell] = i * cols + j;
+                map[1][cell] = (lastRow - i) * cols + lastCol - j;
+                map[2][cell] = i * cols + lastCol - j;
+                map[3][cell] = (lastRow - i) * cols + j;
+                if (symmetries == 4) continue;
+
+                // Quarter turns and the diagonal mirrors only work on a square
+                map[4][cell] = j * cols + lastRow - i;
+                map[5][cell] = (lastCol - j) * cols + i;
+                map[6][cell] = j * cols + i;
+                map[7][cell] = (lastCol - j) * cols + lastRow - i;
+            }
+        }
+
+        for (int s = 0; s < symmetries; s++)
+            for (int cell = 0; cell < cells; cell++)
+                unmap[s][map[s][cell]] = cell;
+    }
+
+    /**
+     * Returns the shared Zobrist keys for boards with the given rules.
+     *
+     * @param rules The rules of the board.
+     * @return The Zobrist keys for the dimensions of the board.
+     */
+    public static Zobrist of(Rules rules) {
+        return CACHE.computeIfAbsent(List.of(rules.rows, rules.cols), key -> new Zobrist(rules.rows, rules.cols));
+    }
+
+    /**
+     * Returns the key of an icon in a cell.
+     *
+     * @param icon The icon in the cell, must be {@link Icon#X} or {@link Icon#O}.
+     * @param cell The index of the cell.
+     * @return The Zobrist key.
+     */
+    public long key(Icon icon, int cell) {
+        return icon == Icon.X ? xKeys[cell] : oKeys[cell];
+    }
+
+    /**
+     * Maps a cell to the cell it lands on under a symmetry.
+     *
+     * @param symmetry The index of the symmetry.
+     * @param cell The index of the cell.
+     * @return The index of the transformed cell.
+     */
+    public int map(int symmetry, int cell) {
+        return map[symmetry][cell];
+    }
+
+    /**
+     * Maps a transformed cell back to the original cell, the inverse of {@link #map(int, int)}.
+     *
+     * @param symmetry The index of the symmetry.
+     * @param cell The index of the transformed cell.
+     * @return The index of the original cell.
+     */
+    public int unmap(int symmetry, int cell) {
+        return unmap[symmetry][cell];
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AIPlayerTest {
+    @Test
+    void hugePlySearchesToTheEndOfTheGame() {
+        Board board = new Board(3);
+        board.set(0, Icon.X);
+        board.set(4, Icon.O);
+
+        Position expected = player(9, AIPlayer.SearchMode.MINIMAX).getMove(board.copy());
+        for (AIPlayer.SearchMode mode : AIPlayer.SearchMode.values()) {
+            // Deeper than the board can go, the search must stop at the last empty cell
+            assertEquals(player(Integer.MAX_VALUE, AIPlayer.SearchMode.MINIMAX).getMove(board.copy()),
+                    player(Integer.MAX_VALUE, mode).getMove(board.copy()), mode.name());
+            assertEquals(expected, player(1000, mode).getMove(board.copy()), mode.name());
+        }
+    }
+
+    @Test
+    void playerTooDeepForTheCacheSearchesWithoutIt() {
+        Board board = new Board(3);
+        board.set(0, Icon.X);
+        board.set(4, Icon.O);
+
+        AIPlayer deep = player(EvaluationCache.MAX_DEPTH + 1, AIPlayer.SearchMode.ALPHA_BETA);
+        deep.setEvaluationCache(new EvaluationCache(1));
+        assertEquals(player(EvaluationCache.MAX_DEPTH + 1, AIPlayer.SearchMode.MINIMAX).getMove(board.copy()),
+                deep.getMove(board.copy()));
+    }
+
+    @Test
+    void searchModesChooseTheMovesOfMinimax() {
+        compareSearchModes(Rules.square(3), 9, 100);
+        compareSearchModes(Rules.square(4), 4, 40);
+    }
+
+    @Test
+    void sharedTableKeepsOtherRulesApart() {
+        TranspositionTable shared = new TranspositionTable(1);
+        Random random = new Random(3);
+        for (int n = 0; n < 40; n++) {
+            int[] cells = new int[4];
+            for (int i = 0; i < cells.length; i++) cells[i] = random.nextInt(16);
+
+            // The same cells on boards of the same size, only k differs, so the Zobrist hashes are the same
+            for (int k = 3; k <= 4; k++) {
+                Board board = new Board(Rules.of(4, 4, k));
+                for (int i = 0; i < cells.length; i++) board.set(cells[i], i % 2 == 0 ? Icon.X : Icon.O);
+                if (board.isWinner(Icon.X) || board.isWinner(Icon.O)) continue;
+
+                AIPlayer sharing = new AIPlayer(4, AIPlayer.Tiebreaker.LEFT);
+                sharing.setTranspositionTable(shared);
+                sharing.setIcon(Icon.X);
+                AIPlayer alone = new AIPlayer(4, AIPlayer.Tiebreaker.LEFT);
+                alone.setTranspositionTable(new TranspositionTable(1));
+                alone.setIcon(Icon.X);
+                assertEquals(alone.getMove(board.copy()), sharing.getMove(board.copy()), "k=" + k + "\n" + board);
+            }
+        }
+    }
+
+    /**
+     * Plays seeded random openings and checks that every search mode, with and without a transposition table,
+     * chooses the move of plain minimax with both deterministic tiebreakers.
+     */
+    private static void compareSearchModes(Rules rules, int ply, int positions) {
+        Random random = new Random(rules.cells);
+        AIPlayer.Tiebreaker[] tiebreakers = {AIPlayer.Tiebreaker.LEFT, AIPlayer.Tiebreaker.RIGHT};
+        for (AIPlayer.Tiebreaker tiebreaker : tiebreakers) {
+            // The tables are kept between positions, so later searches also hit entries of earlier ones
+            AIPlayer alphaBeta = new AIPlayer(ply, tiebreaker, AIPlayer.SearchMode.ALPHA_BETA);
+            AIPlayer parallel = new AIPlayer(ply, tiebreaker, AIPlayer.SearchMode.PARALLEL);
+            alphaBeta.setTranspositionTable(new TranspositionTable(1));
+            parallel.setTranspositionTable(new TranspositionTable(1));
+            AIPlayer alphaBetaWithoutTable = new AIPlayer(ply, tiebreaker, AIPlayer.SearchMode.ALPHA_BETA);
+            AIPlayer parallelWithoutTable = new AIPlayer(ply, tiebreaker, AIPlayer.SearchMode.PARALLEL);
+            alphaBetaWithoutTable.setTranspositionTable(null);
+            parallelWithoutTable.setTranspositionTable(null);
+
+            for (int n = 0; n < positions; n++) {
+                Board board = new Board(rules);
+                Icon player = Icon.X;
+                int[] moves = new int[rules.cells];
+                for (int i = random.nextInt(rules.cells - 1); i > 0 && !board.isWinner(player.opponent()); i--) {
+                    int count = board.getPossibleMoves(moves);
+                    board.set(moves[random.nextInt(count)], player);
+                    player = player.opponent();
+                }
+                if (board.isWinner(player.opponent())) continue;
+
+                AIPlayer minimax = new AIPlayer(ply, tiebreaker, AIPlayer.SearchMode.MINIMAX);
+                minimax.setIcon(player);
+                Position expected = minimax.getMove(board.copy());
+                AIPlayer[] searches = {alphaBeta, parallel, alphaBetaWithoutTable, parallelWithoutTable};
+                for (AIPlayer search : searches) {
+                    search.setIcon(player);
+                    assertEquals(expected, search.getMove(board.copy()), tiebreaker + "\n" + board);
+                }
+            }
+        }
+    }
+
+    private static AIPlayer player(int ply, AIPlayer.SearchMode mode) {
+        AIPlayer player = new AIPlayer(ply, AIPlayer.Tiebreaker.LEFT, mode);
+        player.setIcon(Icon.X);
+        return player;
+    }
+}
@@ -0,0 +1,31 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class BatchAnalyzerTest {
+    @Test
+    void mixedRulesOfTheSameSizeAreAnalyzedApart() {
+        // The same cells on boards of the same size, only k differs, so the Zobrist hashes are the same
+        List<Board> positions = new ArrayList<>();
+        for (int k = 3; k <= 4; k++) {
+            Board board = new Board(Rules.of(4, 4, k));
+            board.set(5, Icon.X);
+            board.set(6, Icon.O);
+            board.set(9, Icon.X);
+            positions.add(board);
+        }
+
+        List<BatchAnalyzer.Result> mixed = new BatchAnalyzer(3).analyze(positions.stream());
+        for (int i = 0; i < positions.size(); i++) {
+            BatchAnalyzer.Result alone = new BatchAnalyzer(3).analyze(Stream.of(positions.get(i))).get(0);
+            assertEquals(alone.move(), mixed.get(i).move());
+            assertEquals(alone.score(), mixed.get(i).score());
+            assertFalse(mixed.get(i).reused());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class PerftTest {
+    @Test
+    void countsEveryGameOnThreeByThree() {
+        assertTotals(run(Rules.square(3), 9, Perft.Dedup.NONE), 549946, 131184, 77904, 46080);
+    }
+
+    @Test
+    void countsEveryPositionOnThreeByThree() {
+        assertTotals(run(Rules.square(3), 9, Perft.Dedup.TRANSPOSITIONS), 5478, 626, 316, 16);
+    }
+
+    @Test
+    void countsEveryPositionUpToSymmetryOnThreeByThree() {
+        assertTotals(run(Rules.square(3), 9, Perft.Dedup.SYMMETRIES), 765, 91, 44, 3);
+    }
+
+    @Test
+    void countsPositionsByHashOnLargeNonSquareBoard() {
+        // 72 cells, too many for the base-3 index, and nobody can win in three moves
+        Rules rules = Rules.of(9, 8, 5);
+        assertArrayEquals(new long[] {1, 72, 72 * 71, 72 * 71 * 70},
+                run(rules, 3, Perft.Dedup.NONE).nodes());
+        assertArrayEquals(new long[] {1, 72, 72 * 71, 72 * 71 * 70 / 2},
+                run(rules, 3, Perft.Dedup.TRANSPOSITIONS).nodes());
+
+        // Burnside's lemma: of the mirror images and the half turn only the row mirror fixes cells, the middle row
+        assertArrayEquals(new long[] {1, (72 + 8) / 4, (72 * 71 + 8 * 7) / 4, (72 * 71 / 2 * 70 + 8 * (21 + 32)) / 4},
+                run(rules, 3, Perft.Dedup.SYMMETRIES).nodes());
+    }
+
+    private static Perft.Result run(Rules rules, int depth, Perft.Dedup dedup) {
+        Perft perft = new Perft(rules);
+        perft.setDedup(dedup);
+        return perft.run(depth);
+    }
+
+    private static void assertTotals(Perft.Result result, long nodes, long xWins, long oWins, long draws) {
+        assertEquals(nodes, result.totalNodes());
+        assertEquals(xWins, Arrays.stream(result.xWins()).sum());
+        assertEquals(oWins, Arrays.stream(result.oWins()).sum());
+        assertEquals(draws, Arrays.stream(result.draws()).sum());
+    }
+}
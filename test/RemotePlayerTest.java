@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RemotePlayerTest {
+    private final ExecutorService events = Executors.newSingleThreadExecutor();
+    private final ExecutorService compute = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutdown() {
+        events.shutdownNow();
+        compute.shutdownNow();
+    }
+
+    @Test
+    void earlySubmitAnswersTheNextRequestOnEveryTurn() {
+        RemotePlayer player = new RemotePlayer(board -> { });
+        BoardSnapshot board = BoardSnapshot.empty(Rules.square(3));
+
+        CompletableFuture<Position> first = player.requestMove(board);
+        assertTrue(player.submitMove(new Position(0, 0)));
+        assertEquals(new Position(0, 0), first.join());
+
+        // Sent before the second and third turn were requested
+        assertTrue(player.submitMove(new Position(1, 1)));
+        assertFalse(player.submitMove(new Position(2, 2)));
+        assertEquals(new Position(1, 1), player.requestMove(board).getNow(null));
+
+        CompletableFuture<Position> third = player.requestMove(board);
+        assertFalse(third.isDone());
+        assertTrue(player.submitMove(new Position(2, 2)));
+        assertEquals(new Position(2, 2), third.join());
+    }
+
+    @Test
+    void sessionPlaysMovesSubmittedAhead() throws Exception {
+        Position[] script = {new Position(0, 0), new Position(1, 0), new Position(2, 0)};
+        RemotePlayer[] remote = new RemotePlayer[1];
+        int[] turns = new int[1];
+        remote[0] = new RemotePlayer(board -> {
+            // The first turn answers itself and the second one, later turns are answered one turn ahead
+            int turn = turns[0]++;
+            if (turn == 0) remote[0].submitMove(script[0]);
+            if (turn + 1 < script.length) remote[0].submitMove(script[turn + 1]);
+        });
+
+        GameSession session = new GameSession(1, Rules.square(3), remote[0], new FirstCellPlayer(), events, compute);
+        GameResult result = session.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals(Icon.X, result.winner());
+        assertFalse(result.forfeit());
+        assertEquals(5, result.moves().size());
+    }
+
+    @Test
+    void clientSeesSnapshotsOfTheGame() throws Exception {
+        List<BoardSnapshot> seen = new ArrayList<>();
+        RemotePlayer[] remote = new RemotePlayer[1];
+        remote[0] = new RemotePlayer(board -> {
+            seen.add(board);
+            remote[0].submitMove(board.getPossibleMoves().get(0));
+        });
+
+        GameSession session = new GameSession(1, Rules.square(3), remote[0], new FirstCellPlayer(), events, compute);
+        GameResult result = session.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals(Icon.X, result.winner());
+        assertEquals(List.of(9, 7, 5, 3), seen.stream().map(BoardSnapshot::getEmptyCells).toList());
+        assertEquals(Icon.X, seen.get(1).get(0));
+        assertEquals(Icon.O, seen.get(1).get(1));
+    }
+
+    @Test
+    void silentClientForfeitsAfterTheMoveTimeout() throws Exception {
+        RemotePlayer remote = new RemotePlayer(board -> { });
+        remote.setMoveTimeout(Duration.ofMillis(50));
+
+        GameSession session = new GameSession(1, Rules.square(3), remote, new FirstCellPlayer(), events, compute);
+        GameResult result = session.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals(Icon.O, result.winner());
+        assertTrue(result.forfeit());
+        assertFalse(remote.submitMove(new Position(0, 0)));
+    }
+
+    /**
+     * Plays the first empty cell.
+     */
+    private static final class FirstCellPlayer extends Player {
+        @Override
+        public Position getMove(Board board) {
+            return board.getPossibleMoves().get(0);
+        }
+    }
+}